@@ -0,0 +1,51 @@
+package uk.co.datumedge.redislauncher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the redis-launcher benchmarks. Accepts the same arguments as JMH's own {@code Main}, but writes results as JSON
+ * to {@code jmh-result.json} unless another format or file is given with {@code -rf} or {@code -rff}. The
+ * {@code redislauncher.command} system property is passed on to the forked benchmark JVMs.
+ *
+ * <pre>
+ * java -Dredislauncher.command=/path/to/redis-server -jar benchmarks/target/benchmarks.jar
+ * </pre>
+ */
+public final class Benchmarks {
+	private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	private Benchmarks() { }
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()
+				|| commandLineOptions.shouldListWithParams() || commandLineOptions.shouldListProfilers()
+				|| commandLineOptions.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+
+		OptionsBuilder options = new OptionsBuilder();
+		options.parent(commandLineOptions);
+		if (!commandLineOptions.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+		if (!commandLineOptions.getResult().hasValue()) options.result(DEFAULT_RESULT_FILE);
+
+		String command = System.getProperty(Configuration.COMMAND_PROPERTY);
+		if (command != null) {
+			List<String> jvmArgs = new ArrayList<>();
+			if (commandLineOptions.getJvmArgsAppend().hasValue()) {
+				jvmArgs.addAll(commandLineOptions.getJvmArgsAppend().get());
+			}
+			jvmArgs.add("-D" + Configuration.COMMAND_PROPERTY + "=" + command);
+			options.jvmArgsAppend(jvmArgs.toArray(new String[jvmArgs.size()]));
+		}
+
+		new Runner(options.build()).run();
+	}
+}
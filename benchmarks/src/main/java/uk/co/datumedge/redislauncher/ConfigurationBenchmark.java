@@ -0,0 +1,49 @@
+package uk.co.datumedge.redislauncher;
+
+import static uk.co.datumedge.redislauncher.Configuration.programmaticConfiguration;
+
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.exec.CommandLine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures generation of the {@code redis.conf} text which a programmatic configuration pipes to
+ * {@code redis-server} over {@code stdin}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ConfigurationBenchmark {
+	private Configuration configuration;
+
+	@Setup(Level.Trial)
+	public void create() {
+		Configuration.ProgrammaticBuilder builder = programmaticConfiguration();
+		for (int i = 0; i < 20; i++) {
+			builder.withProperty("property-" + i, "value-" + i);
+		}
+		builder.withCommandLine(new CommandLine("redis-server"));
+		configuration = builder.withUnixSocket(Paths.get("/tmp/redis.sock")).withPort(6379).build();
+	}
+
+	@Benchmark
+	public InputStream inputStream() {
+		return configuration.inputStream();
+	}
+}
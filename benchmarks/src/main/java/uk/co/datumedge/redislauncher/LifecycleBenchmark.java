@@ -0,0 +1,94 @@
+package uk.co.datumedge.redislauncher;
+
+import static uk.co.datumedge.redislauncher.Configuration.programmaticConfiguration;
+import static uk.co.datumedge.redislauncher.Execution.anExecution;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long a {@link LocalRedisServer} takes to start until it is ready to accept requests, and to stop until
+ * its process has exited. Each invocation launches or shuts down a real {@code redis-server} process, so every
+ * invocation is timed individually.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class LifecycleBenchmark {
+	@State(Scope.Thread)
+	public static class StoppedServer {
+		LocalRedisServer server;
+
+		@Setup(Level.Trial)
+		public void create() {
+			server = newServer();
+		}
+
+		@TearDown(Level.Invocation)
+		public void stop() throws IOException, InterruptedException {
+			server.stop();
+		}
+
+		@TearDown(Level.Trial)
+		public void destroy() {
+			server.destroy();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class StartedServer {
+		LocalRedisServer server;
+
+		@Setup(Level.Trial)
+		public void create() {
+			server = newServer();
+		}
+
+		@Setup(Level.Invocation)
+		public void start() throws IOException, InterruptedException {
+			server.start();
+		}
+
+		@TearDown(Level.Trial)
+		public void destroy() {
+			server.destroy();
+		}
+	}
+
+	@Benchmark
+	public void startToReady(StoppedServer state) throws IOException, InterruptedException {
+		state.server.start();
+	}
+
+	@Benchmark
+	public void stopToExit(StartedServer state) throws IOException, InterruptedException {
+		state.server.stop();
+	}
+
+	static LocalRedisServer newServer() {
+		return new LocalRedisServer(anExecution().withConfiguration(newConfiguration()).build());
+	}
+
+	static Configuration newConfiguration() {
+		return programmaticConfiguration()
+				.withProperty("save", "\"\"")
+				.withProperty("appendonly", "no")
+				.withEphemeralPort()
+				.build();
+	}
+}
@@ -0,0 +1,127 @@
+package uk.co.datumedge.redislauncher;
+
+import static uk.co.datumedge.redislauncher.Execution.anExecution;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the control protocol: a PING round trip to a running server through {@link RedisControlConnection} and
+ * {@link Reply}, and parsing of replies held in memory, which isolates the parser from the network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplyBenchmark {
+	private static final byte[] PONG_REPLY = "+PONG".getBytes(StandardCharsets.UTF_8);
+
+	@State(Scope.Thread)
+	public static class RunningServer {
+		LocalRedisServer server;
+		RedisControlConnection connection;
+
+		@Setup(Level.Trial)
+		public void start() throws IOException, InterruptedException {
+			Configuration configuration = LifecycleBenchmark.newConfiguration();
+			server = new LocalRedisServer(anExecution().withConfiguration(configuration).build());
+			server.start();
+			connection = RedisControlConnection.open(configuration.socketAddress());
+		}
+
+		@TearDown(Level.Trial)
+		public void stop() throws IOException, InterruptedException {
+			try {
+				connection.close();
+				server.stop();
+			} finally {
+				server.destroy();
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class RepeatingReplies {
+		Reply reply;
+
+		@Setup(Level.Trial)
+		public void create() {
+			StringBuilder array = new StringBuilder("*100\r\n");
+			for (int i = 0; i < 100; i++) {
+				array.append("$10\r\nvalue-").append(1000 + i).append("\r\n");
+			}
+			reply = new Reply(new RepeatingChannel(array.toString().getBytes(StandardCharsets.UTF_8)));
+		}
+	}
+
+	@Benchmark
+	public boolean pingRoundTrip(RunningServer state) throws IOException {
+		state.connection.append("PING").flush();
+		Reply reply = state.connection.reply();
+		reply.next();
+		return reply.matches(PONG_REPLY);
+	}
+
+	@Benchmark
+	public void parseArrayOfBulkStrings(RepeatingReplies state, Blackhole blackhole) throws IOException {
+		Reply reply = state.reply;
+		reply.next();
+		for (long i = reply.size(); i > 0; i--) {
+			reply.next();
+			blackhole.consume(reply.content());
+		}
+	}
+
+	/**
+	 * A channel which supplies the same bytes over and over, as if an endless stream of identical replies were
+	 * arriving.
+	 */
+	private static final class RepeatingChannel implements ReadableByteChannel {
+		private final ByteBuffer source;
+
+		RepeatingChannel(byte[] bytes) {
+			this.source = ByteBuffer.wrap(bytes);
+		}
+
+		@Override
+		public int read(ByteBuffer destination) {
+			int read = 0;
+			while (destination.hasRemaining()) {
+				if (!source.hasRemaining()) source.rewind();
+				int length = Math.min(destination.remaining(), source.remaining());
+				ByteBuffer slice = source.slice();
+				slice.limit(length);
+				destination.put(slice);
+				source.position(source.position() + length);
+				read += length;
+			}
+			return read;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() { }
+	}
+}
@@ -0,0 +1,106 @@
+package uk.co.datumedge.redislauncher;
+
+/**
+ * A strategy for the delays between attempts at connecting to a redis server, and between checks that it is ready to
+ * accept requests. Strategies are used with {@link ConnectionProperties.Builder#withConnectionBackoff(BackoffStrategy)}
+ * and {@link ConnectionProperties.Builder#withReadinessBackoff(BackoffStrategy)}. Attempts end when the strategy
+ * gives up, or the maximum number of attempts in {@link ConnectionProperties} has been made, whichever comes first.
+ * <p>
+ * Local servers usually bind their port within a few milliseconds of being launched, so a short initial delay that
+ * grows exponentially finds the server soon after it is ready, without polling a server that is slow to start in a
+ * tight loop:
+ *
+ * <pre>
+ * ConnectionProperties connectionProperties = new ConnectionProperties.Builder()
+ * 	.withMaximumConnectionAttempts(Integer.MAX_VALUE)
+ * 	.withConnectionBackoff(BackoffStrategy.withDeadline(5000, BackoffStrategy.exponential(1, 100, 0.5)))
+ * 	.build();
+ * </pre>
+ *
+ * Implementations must be safe for use by multiple threads.
+ */
+public interface BackoffStrategy {
+	/**
+	 * The value returned by {@link #delayMillis(int, long)} to give up.
+	 */
+	long STOP = -1;
+
+	/**
+	 * Returns the time to wait before the next attempt.
+	 *
+	 * @param failedAttempts
+	 *            the number of attempts that have failed so far, starting at {@code 1}
+	 * @param elapsedMillis
+	 *            the time since the first attempt began
+	 * @return the delay in milliseconds, or {@link #STOP} to make no more attempts
+	 */
+	long delayMillis(int failedAttempts, long elapsedMillis);
+
+	/**
+	 * Returns a strategy that waits the same time between every attempt.
+	 *
+	 * @param delayMillis
+	 *            the delay between attempts
+	 * @return a {@code BackoffStrategy} instance
+	 * @throws IllegalArgumentException
+	 *             if the delay is negative
+	 */
+	static BackoffStrategy fixed(long delayMillis) {
+		return new FixedBackoff(delayMillis);
+	}
+
+	/**
+	 * Returns a strategy whose delay starts at {@code initialDelayMillis} and doubles after each failed attempt, up to
+	 * {@code maximumDelayMillis}. Each delay is then reduced by a random amount of up to {@code jitter} times itself,
+	 * so that servers started together do not poll in step.
+	 *
+	 * @param initialDelayMillis
+	 *            the delay after the first failed attempt
+	 * @param maximumDelayMillis
+	 *            the greatest delay
+	 * @param jitter
+	 *            the greatest fraction of each delay that is randomly removed, from {@code 0} for no jitter to
+	 *            {@code 1}
+	 * @return a {@code BackoffStrategy} instance
+	 * @throws IllegalArgumentException
+	 *             if the initial delay is not positive, the maximum delay is less than the initial delay, or the jitter
+	 *             is not between {@code 0} and {@code 1}
+	 */
+	static BackoffStrategy exponential(long initialDelayMillis, long maximumDelayMillis, double jitter) {
+		return new ExponentialBackoff(initialDelayMillis, maximumDelayMillis, jitter);
+	}
+
+	/**
+	 * Returns a strategy whose delays are {@code initialDelayMillis} multiplied by successive Fibonacci numbers, 1, 1,
+	 * 2, 3, 5 and so on, up to {@code maximumDelayMillis}. The delay grows more gently than with
+	 * {@linkplain #exponential(long, long, double) exponential backoff}.
+	 *
+	 * @param initialDelayMillis
+	 *            the delay after the first and second failed attempts
+	 * @param maximumDelayMillis
+	 *            the greatest delay
+	 * @return a {@code BackoffStrategy} instance
+	 * @throws IllegalArgumentException
+	 *             if the initial delay is not positive, or the maximum delay is less than the initial delay
+	 */
+	static BackoffStrategy fibonacci(long initialDelayMillis, long maximumDelayMillis) {
+		return new FibonacciBackoff(initialDelayMillis, maximumDelayMillis);
+	}
+
+	/**
+	 * Returns a strategy which waits as {@code strategy} does, but gives up once {@code totalMillis} have elapsed
+	 * since the first attempt. A delay that would pass the deadline is shortened so that a last attempt is made at
+	 * the deadline.
+	 *
+	 * @param totalMillis
+	 *            the time after which no more attempts are made
+	 * @param strategy
+	 *            the strategy which chooses each delay
+	 * @return a {@code BackoffStrategy} instance
+	 * @throws IllegalArgumentException
+	 *             if the total time is negative
+	 */
+	static BackoffStrategy withDeadline(long totalMillis, BackoffStrategy strategy) {
+		return new DeadlineBackoff(totalMillis, strategy);
+	}
+}
@@ -0,0 +1,164 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A cgroup v2 in which a server process runs, with optional memory and CPU limits. A new cgroup is created below a
+ * parent cgroup every time the server is started, and removed once the server process has exited.
+ * <p>
+ * The parent must be delegated to the user running the JVM. The parent's {@code cgroup.subtree_control} is updated to
+ * enable the memory controller, which accounts for the server's memory, and the CPU controller if a CPU limit is set.
+ * The kernel only allows this if the parent has no processes of its own.
+ */
+final class Cgroup {
+	private static final AtomicInteger COUNT = new AtomicInteger();
+	private static final long CPU_PERIOD_MICROS = 100000;
+
+	private final Path parent;
+	private final long memoryLimitBytes;
+	private final double cpuLimit;
+	private final List<Path> staleDirectories = new ArrayList<>();
+	private volatile Path directory;
+	private volatile long removedPeakMemoryBytes = -1;
+	private volatile long removedCpuTimeMicros = -1;
+
+	/**
+	 * @param memoryLimitBytes
+	 *            the {@code memory.max} of the cgroup, or {@code 0} for no limit
+	 * @param cpuLimit
+	 *            the number of CPUs the cgroup may use, or {@code 0} for no limit
+	 */
+	Cgroup(Path parent, long memoryLimitBytes, double cpuLimit) {
+		this.parent = parent;
+		this.memoryLimitBytes = memoryLimitBytes;
+		this.cpuLimit = cpuLimit;
+	}
+
+	/**
+	 * Creates a new cgroup below the parent and applies its limits. Any earlier cgroup is removed first, or left to be
+	 * removed later if processes remain in it.
+	 *
+	 * @throws IOException
+	 *             if the cgroup could not be created, or a controller could not be enabled or a limit set
+	 */
+	synchronized void create() throws IOException {
+		remove();
+		removedPeakMemoryBytes = -1;
+		removedCpuTimeMicros = -1;
+		List<String> controllers = new ArrayList<>();
+		controllers.add("memory");
+		if (cpuLimit > 0) controllers.add("cpu");
+		enableControllers(controllers);
+
+		Path directory = parent.resolve(
+				"redislauncher-" + ProcessHandle.current().pid() + "-" + COUNT.incrementAndGet());
+		Files.createDirectory(directory);
+		this.directory = directory;
+		if (memoryLimitBytes > 0) write(directory.resolve("memory.max"), Long.toString(memoryLimitBytes));
+		if (cpuLimit > 0) {
+			write(directory.resolve("cpu.max"), Math.round(cpuLimit * CPU_PERIOD_MICROS) + " " + CPU_PERIOD_MICROS);
+		}
+	}
+
+	private void enableControllers(List<String> controllers) throws IOException {
+		Path subtreeControl = parent.resolve("cgroup.subtree_control");
+		List<String> enabled = Files.exists(subtreeControl)
+				? Arrays.asList(read(subtreeControl).trim().split("\\s+"))
+				: new ArrayList<String>();
+		StringBuilder change = new StringBuilder();
+		for (String controller : controllers) {
+			if (!enabled.contains(controller)) change.append(change.length() == 0 ? "+" : " +").append(controller);
+		}
+		if (change.length() > 0) write(subtreeControl, change.toString());
+	}
+
+	/**
+	 * Returns the file to which a process ID is written to move the process into the cgroup, or {@code null} if the
+	 * cgroup has not been created.
+	 */
+	Path procsFile() {
+		Path directory = this.directory;
+		return directory == null ? null : directory.resolve("cgroup.procs");
+	}
+
+	/**
+	 * Returns the largest memory usage of the cgroup since it was created, from {@code memory.peak}, or {@code -1} if
+	 * the cgroup has never been created or the kernel does not report it. Once the cgroup is removed, this is the
+	 * value read just before it was.
+	 */
+	synchronized long peakMemoryBytes() {
+		return directory == null ? removedPeakMemoryBytes : readPeakMemoryBytes();
+	}
+
+	private long readPeakMemoryBytes() {
+		String peak = readIfExists("memory.peak");
+		return peak == null ? -1 : Long.parseLong(peak);
+	}
+
+	/**
+	 * Returns the CPU time used by every process in the cgroup since it was created, from {@code usage_usec} in
+	 * {@code cpu.stat}, or {@code -1} if the cgroup has never been created. Once the cgroup is removed, this is the
+	 * value read just before it was.
+	 */
+	synchronized long cpuTimeMicros() {
+		return directory == null ? removedCpuTimeMicros : readCpuTimeMicros();
+	}
+
+	private long readCpuTimeMicros() {
+		String stat = readIfExists("cpu.stat");
+		if (stat == null) return -1;
+		for (String line : stat.split("\n")) {
+			if (line.startsWith("usage_usec ")) return Long.parseLong(line.substring("usage_usec ".length()));
+		}
+		return -1;
+	}
+
+	private String readIfExists(String file) {
+		Path directory = this.directory;
+		if (directory == null) return null;
+		try {
+			return read(directory.resolve(file)).trim();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Removes the cgroup, if it exists, keeping its final accounting. The kernel only removes a cgroup once every
+	 * process in it has exited, so a cgroup which cannot be removed yet is remembered, and removing it is tried again
+	 * by every later call to this method or {@link #create()}.
+	 */
+	synchronized void remove() {
+		Path directory = this.directory;
+		if (directory != null) {
+			removedPeakMemoryBytes = readPeakMemoryBytes();
+			removedCpuTimeMicros = readCpuTimeMicros();
+			staleDirectories.add(directory);
+			this.directory = null;
+		}
+		for (Iterator<Path> stale = staleDirectories.iterator(); stale.hasNext();) {
+			try {
+				Files.deleteIfExists(stale.next());
+				stale.remove();
+			} catch (IOException e) {
+				// processes remain in the cgroup; try again later
+			}
+		}
+	}
+
+	private static String read(Path file) throws IOException {
+		return new String(Files.readAllBytes(file), StandardCharsets.US_ASCII);
+	}
+
+	private static void write(Path file, String value) throws IOException {
+		Files.write(file, value.getBytes(StandardCharsets.US_ASCII));
+	}
+}
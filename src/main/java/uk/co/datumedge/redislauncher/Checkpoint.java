@@ -0,0 +1,160 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A copy of a redis server's dataset, captured key by key with {@code DUMP} and put back with {@code RESTORE}. Each
+ * key is held in its serialized form together with its remaining time to live.
+ * <p>
+ * Keys are found with {@code SCAN}, and the dump and time to live of each batch of keys are requested as a single
+ * pipeline, as are the {@code RESTORE} commands. The dataset is not captured atomically, so keys should not be modified
+ * while a checkpoint is taken.
+ */
+final class Checkpoint {
+	private static final String SCAN_COUNT = "1000";
+	private static final byte[] DUMP = bytes("DUMP");
+	private static final byte[] PTTL = bytes("PTTL");
+	private static final byte[] RESTORE = bytes("RESTORE");
+	private static final byte[] REPLACE = bytes("REPLACE");
+	private static final long KEY_DOES_NOT_EXIST = -2;
+
+	private final Map<Integer, List<Entry>> databases;
+
+	private Checkpoint(Map<Integer, List<Entry>> databases) {
+		this.databases = databases;
+	}
+
+	/**
+	 * Captures every key in every database. The connection is left with database 0 selected.
+	 */
+	static Checkpoint capture(RedisControlConnection connection) throws IOException {
+		Map<Integer, List<Entry>> databases = new LinkedHashMap<>();
+		try {
+			for (int database : nonEmptyDatabases(connection)) {
+				connection.execute("SELECT", Integer.toString(database));
+				databases.put(database, captureDatabase(connection));
+			}
+		} finally {
+			connection.execute("SELECT", "0");
+		}
+		return new Checkpoint(databases);
+	}
+
+	private static List<Integer> nonEmptyDatabases(RedisControlConnection connection) throws IOException {
+		String keyspace = connection.execute("INFO", "keyspace").contentAsString();
+		List<Integer> databases = new ArrayList<>();
+		for (String line : keyspace.split("\r\n")) {
+			int colon = line.indexOf(':');
+			if (line.startsWith("db") && colon > 2) {
+				databases.add(Integer.valueOf(line.substring(2, colon)));
+			}
+		}
+		return databases;
+	}
+
+	private static List<Entry> captureDatabase(RedisControlConnection connection) throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		String cursor = "0";
+		do {
+			Reply reply = connection.execute("SCAN", cursor, "COUNT", SCAN_COUNT);
+			reply.next();
+			cursor = reply.contentAsString();
+			reply.next();
+			List<byte[]> keys = new ArrayList<>((int) reply.size());
+			for (long i = reply.size(); i > 0; i--) {
+				reply.next();
+				keys.add(copy(reply.content()));
+			}
+			captureKeys(connection, keys, entries);
+		} while (!cursor.equals("0"));
+		return entries;
+	}
+
+	private static void captureKeys(RedisControlConnection connection, List<byte[]> keys, List<Entry> entries)
+			throws IOException {
+		if (keys.isEmpty()) return;
+		for (byte[] key : keys) {
+			connection.append(DUMP, key).append(PTTL, key);
+		}
+		connection.flush();
+		ErrorReplyException error = null;
+		for (byte[] key : keys) {
+			// every reply is read, even after an error, so that the connection stays usable
+			byte[] payload;
+			long timeToLive;
+			try {
+				Reply reply = connection.nextReply();
+				payload = reply.isNull() ? null : copy(reply.content());
+			} catch (ErrorReplyException e) {
+				if (error == null) error = e;
+				payload = null;
+			}
+			try {
+				timeToLive = connection.nextReply().integer();
+			} catch (ErrorReplyException e) {
+				if (error == null) error = e;
+				continue;
+			}
+			// a key which expired or was deleted after it was scanned has no payload
+			if (payload != null && timeToLive != KEY_DOES_NOT_EXIST) {
+				entries.add(new Entry(key, Math.max(timeToLive, 0), payload));
+			}
+		}
+		if (error != null) throw error;
+	}
+
+	/**
+	 * Deletes every key in every database, then restores the captured keys. The connection is left with database 0
+	 * selected.
+	 */
+	void restore(RedisControlConnection connection) throws IOException {
+		connection.execute("FLUSHALL");
+		try {
+			for (Map.Entry<Integer, List<Entry>> database : databases.entrySet()) {
+				connection.execute("SELECT", database.getKey().toString());
+				restoreDatabase(connection, database.getValue());
+			}
+		} finally {
+			connection.execute("SELECT", "0");
+		}
+	}
+
+	private static void restoreDatabase(RedisControlConnection connection, List<Entry> entries) throws IOException {
+		for (int start = 0; start < entries.size(); start += RedisControlConnection.PIPELINE_BATCH_SIZE) {
+			int end = Math.min(entries.size(), start + RedisControlConnection.PIPELINE_BATCH_SIZE);
+			for (Entry entry : entries.subList(start, end)) {
+				connection.append(RESTORE, entry.key, bytes(Long.toString(entry.timeToLive)), entry.payload, REPLACE);
+			}
+			connection.flush();
+			connection.awaitReplies(end - start);
+		}
+	}
+
+	private static byte[] copy(ByteBuffer content) {
+		byte[] bytes = new byte[content.remaining()];
+		content.get(bytes);
+		return bytes;
+	}
+
+	private static byte[] bytes(String string) {
+		return string.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static final class Entry {
+		final byte[] key;
+		final long timeToLive;
+		final byte[] payload;
+
+		Entry(byte[] key, long timeToLive, byte[] payload) {
+			this.key = key;
+			this.timeToLive = timeToLive;
+			this.payload = payload;
+		}
+	}
+}
@@ -2,6 +2,11 @@ package uk.co.datumedge.redislauncher;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,9 +28,16 @@ public class Configuration {
 	 */
 	public final int port;
 
-	Configuration(CommandLine commandLine, int port) {
+	/**
+	 * The path of the unix socket on which the redis server accepts connections, or {@code null} if the server does
+	 * not listen on a unix socket.
+	 */
+	public final Path unixSocket;
+
+	Configuration(CommandLine commandLine, int port, Path unixSocket) {
 		this.commandLine = commandLine;
 		this.port = port;
+		this.unixSocket = unixSocket;
 	}
 
 	/**
@@ -88,6 +100,16 @@ public class Configuration {
 		return null;
 	}
 
+	/**
+	 * Prepares the file system for the redis server process, immediately before each time it is launched.
+	 */
+	void prepare() throws IOException { }
+
+	SocketAddress socketAddress() {
+		if (unixSocket != null) return UnixDomainSocketAddress.of(unixSocket);
+		return new InetSocketAddress("localhost", port);
+	}
+
 	/**
 	 * A builder of {@code Configuration} instances.
 	 */
@@ -95,6 +117,8 @@ public class Configuration {
 		private static final int DEFAULT_PORT = 6379;
 		CommandLine commandLine;
 		int port = DEFAULT_PORT;
+		Path unixSocket;
+		private boolean ephemeralPort;
 
 		private Builder() { }
 
@@ -115,6 +139,35 @@ public class Configuration {
 		 */
 		public final Builder withPort(int port) {
 			this.port = port;
+			this.ephemeralPort = false;
+			return this;
+		}
+
+		/**
+		 * Sets the path of a unix socket on which the redis server accepts connections. When a unix socket is set, the
+		 * launcher connects to the server over the socket instead of over TCP. The server still listens on its port
+		 * too. With {@linkplain Configuration#staticConfiguration() static configuration}, the {@code redis.conf} file
+		 * must specify the same {@code unixsocket}.
+		 *
+		 * @return the updated builder
+		 */
+		public final Builder withUnixSocket(Path unixSocket) {
+			this.unixSocket = unixSocket;
+			return this;
+		}
+
+		/**
+		 * Has the redis server accept connections on a free port chosen when the configuration is built. Until this
+		 * JVM exits, the port is reserved, and is not chosen again by this or any other JVM on the same host. Once
+		 * the JVM exits, the port may be chosen again. The chosen port is available as {@link Configuration#port}.
+		 * <p>
+		 * With {@linkplain Configuration#staticConfiguration() static configuration}, the port is passed to
+		 * {@code redis-server} as a {@code --port} argument appended to the {@code CommandLine}.
+		 *
+		 * @return the updated builder
+		 */
+		public final Builder withEphemeralPort() {
+			this.ephemeralPort = true;
 			return this;
 		}
 
@@ -127,17 +180,33 @@ public class Configuration {
 		 * @throws NullPointerException
 		 *             if no {@code CommandLine} was specified and the {@code redislauncher.command} system
 		 *             property does not exist
+		 * @throws UncheckedIOException
+		 *             if an ephemeral port was requested but none could be reserved
 		 */
 		public Configuration build() {
 			useDefaultIfCommandLineNotSpecified();
-			return new Configuration(commandLine, port);
+			if (!ephemeralPort) return new Configuration(commandLine, port, unixSocket);
+
+			int port = resolvePort();
+			return new Configuration(new CommandLine(commandLine)
+					.addArgument("--port")
+					.addArgument(Integer.toString(port)), port, unixSocket);
+		}
+
+		final int resolvePort() {
+			if (!ephemeralPort) return port;
+			try {
+				return PortAllocator.allocate();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
 		}
 
 		final void useDefaultIfCommandLineNotSpecified() {
 			if (commandLine == null) commandLine = defaultCommandLine();
 		}
 
-		private CommandLine defaultCommandLine() {
+		static CommandLine defaultCommandLine() {
 			String command = System.getProperty(COMMAND_PROPERTY);
 			if (command == null) {
 				throw new NullPointerException(COMMAND_PROPERTY +
@@ -154,18 +223,81 @@ public class Configuration {
 	 */
 	public static final class ProgrammaticBuilder extends Builder {
 		private final Map<String, String> properties = new HashMap<String, String>();
+		private Path initialDataset;
 
 		private ProgrammaticBuilder() { }
 
 		@Override
 		public Configuration build() {
 			useDefaultIfCommandLineNotSpecified();
-			return new ProgrammaticConfiguration(commandLine, port, properties);
+			return new ProgrammaticConfiguration(commandLine, resolvePort(), unixSocket, initialDataset(), properties);
+		}
+
+		/**
+		 * Has the redis server load an initial dataset from an RDB file when it starts, using its native loader. This
+		 * is much faster than writing a large dataset to the server with commands.
+		 * <p>
+		 * When the configuration is built, a working directory is created for the server, and the {@code dir} and
+		 * {@code dbfilename} properties are set to a file in that directory, overriding any given with
+		 * {@link #withProperty(String, String)}. Each time the server starts, the file is replaced by a hard link to
+		 * {@code rdb}, or a copy of it if a link cannot be made, so the server always starts with the initial dataset.
+		 * Redis never modifies an RDB file in place, so {@code rdb} is not changed by the server saving its dataset.
+		 * The server is not ready to accept requests until the dataset has been loaded.
+		 *
+		 * <h6>Example</h6>
+		 * <pre>
+		 * Configuration configuration = programmaticConfiguration()
+		 * 	.withInitialDataset(Paths.get(&quot;src/test/resources/fixtures.rdb&quot;))
+		 * 	.build();
+		 * </pre>
+		 *
+		 * @param rdb
+		 *            the path of an RDB file
+		 * @return the updated builder
+		 */
+		public ProgrammaticBuilder withInitialDataset(Path rdb) {
+			this.initialDataset = rdb;
+			return this;
+		}
+
+		private InitialDataset initialDataset() {
+			if (initialDataset == null) return null;
+			try {
+				return InitialDataset.create(initialDataset);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * Pins the redis main thread and I/O threads to CPUs, using the {@code server_cpulist} property of redis 6.0
+		 * and later. The CPUs should be within the {@linkplain Execution.Builder#withCpuAffinity(String) CPU affinity}
+		 * of the execution, if one is given.
+		 *
+		 * @param cpuList
+		 *            a list of CPU numbers and ranges, such as {@code 0-3,8}
+		 * @return the updated builder
+		 */
+		public ProgrammaticBuilder withServerCpuList(String cpuList) {
+			return withProperty("server_cpulist", cpuList);
+		}
+
+		/**
+		 * Pins the redis background I/O threads, which close files and flush the append only file, to CPUs, using the
+		 * {@code bio_cpulist} property of redis 6.0 and later.
+		 *
+		 * @param cpuList
+		 *            a list of CPU numbers and ranges, such as {@code 0-3,8}
+		 * @return the updated builder
+		 */
+		public ProgrammaticBuilder withBioCpuList(String cpuList) {
+			return withProperty("bio_cpulist", cpuList);
 		}
 
 		/**
 		 * Add a {@code redis.conf} property to the configuration. The port property must be specified with
-		 * {@link Builder#withPort(int)}.
+		 * {@link Builder#withPort(int)} or {@link Builder#withEphemeralPort()}, and the unixsocket property must be
+		 * specified with {@link Builder#withUnixSocket(Path)}.
 		 *
 		 * @param key
 		 *            the property key
@@ -173,10 +305,16 @@ public class Configuration {
 		 *            the property value
 		 * @return the updated builder
 		 * @throws IllegalArgumentException
-		 *             if the key was {@code port}
+		 *             if the key was {@code port} or {@code unixsocket}
 		 */
 		public ProgrammaticBuilder withProperty(String key, String value) {
-			if ("port".equals(key)) throw new IllegalArgumentException("port must be specified using Configuration.Builder.withPort(int)");
+			if ("port".equals(key)) {
+				throw new IllegalArgumentException("port must be specified using Configuration.Builder.withPort(int)");
+			}
+			if ("unixsocket".equals(key)) {
+				throw new IllegalArgumentException(
+						"unixsocket must be specified using Configuration.Builder.withUnixSocket(Path)");
+			}
 			properties.put(key, value);
 			return this;
 		}
@@ -0,0 +1,321 @@
+package uk.co.datumedge.redislauncher;
+
+import static uk.co.datumedge.redislauncher.Configuration.programmaticConfiguration;
+import static uk.co.datumedge.redislauncher.Execution.anExecution;
+import static uk.co.datumedge.redislauncher.LoadHarness.aLoadHarness;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares {@code redis.conf} settings under load. A sweep is given a matrix of property values, launches a server
+ * for every combination of them, runs the same {@link LoadHarness} workload against each, and ranks the combinations
+ * by throughput.
+ *
+ * <pre>
+ * SweepReport report = aConfigurationSweep()
+ * 	.withParameter(&quot;hz&quot;, &quot;10&quot;, &quot;100&quot;)
+ * 	.withParameter(&quot;io-threads&quot;, &quot;1&quot;, &quot;4&quot;)
+ * 	.withLoadHarness(aLoadHarness().withConnections(8).build())
+ * 	.build()
+ * 	.run();
+ * System.out.print(report);
+ * </pre>
+ *
+ * Each server listens on its own {@linkplain Configuration.Builder#withEphemeralPort() ephemeral port} and keeps its
+ * files in a temporary directory under its own names, so combinations can run in parallel. Parallel servers compete
+ * for the same CPUs and disturb each other's results, so combinations run one at a time unless either
+ * {@link Builder#withParallelism(int)} or {@link Builder#withCpuLists(String...)} is given. With CPU lists, each server
+ * is {@linkplain Execution.Builder#withCpuAffinity(String) pinned} to a list which no other running server is using.
+ */
+public final class ConfigurationSweep {
+	private final Map<String, List<String>> parameters;
+	private final Map<String, String> properties;
+	private final LoadHarness loadHarness;
+	private final int parallelism;
+	private final List<String> cpuLists;
+	private final ConnectionProperties connectionProperties;
+
+	/**
+	 * Creates a {@code ConfigurationSweep} builder.
+	 *
+	 * @return a {@code ConfigurationSweep} builder instance
+	 */
+	public static Builder aConfigurationSweep() {
+		return new Builder();
+	}
+
+	private ConfigurationSweep(Builder builder, LoadHarness loadHarness, int parallelism) {
+		this.parameters = new LinkedHashMap<>(builder.parameters);
+		this.properties = new HashMap<>(builder.properties);
+		this.loadHarness = loadHarness;
+		this.parallelism = parallelism;
+		this.cpuLists = builder.cpuLists;
+		this.connectionProperties = builder.connectionProperties;
+	}
+
+	/**
+	 * Returns every combination of the swept property values. The last property added varies fastest.
+	 *
+	 * @return a list of maps of property keys to values
+	 */
+	List<Map<String, String>> combinations() {
+		List<Map<String, String>> combinations = new ArrayList<>();
+		combinations.add(new LinkedHashMap<String, String>());
+		for (Entry<String, List<String>> parameter : parameters.entrySet()) {
+			List<Map<String, String>> extended = new ArrayList<>(combinations.size() * parameter.getValue().size());
+			for (Map<String, String> combination : combinations) {
+				for (String value : parameter.getValue()) {
+					Map<String, String> next = new LinkedHashMap<>(combination);
+					next.put(parameter.getKey(), value);
+					extended.add(next);
+				}
+			}
+			combinations = extended;
+		}
+		return combinations;
+	}
+
+	/**
+	 * Runs the workload against a server for every combination of property values, blocking until every combination
+	 * has finished. Each server is stopped once its workload has run, and the servers' files are deleted once the
+	 * sweep ends. A combination whose server fails to start, or whose workload fails, is reported as failed and the
+	 * sweep carries on.
+	 *
+	 * @return the results, ranked by throughput
+	 * @throws IOException
+	 *             if the directory for server files could not be created
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the combinations to finish
+	 */
+	public SweepReport run() throws IOException, InterruptedException {
+		Path directory = Files.createTempDirectory("redislauncher-sweep");
+		directory.toFile().deleteOnExit();
+		BlockingQueue<String> freeCpuLists = new ArrayBlockingQueue<>(Math.max(1, cpuLists.size()), false, cpuLists);
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+				new DaemonThreadFactory("redislauncher-sweep"));
+		try {
+			List<Future<SweepResult>> futures = new ArrayList<>();
+			for (Map<String, String> combination : combinations()) {
+				futures.add(executor.submit(() -> runPinnedCombination(combination, directory, freeCpuLists)));
+			}
+			List<SweepResult> results = new ArrayList<>(futures.size());
+			for (Future<SweepResult> future : futures) {
+				results.add(await(future));
+			}
+			return new SweepReport(results);
+		} finally {
+			executor.shutdownNow();
+			delete(directory);
+		}
+	}
+
+	private static void delete(Path directory) {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				Files.deleteIfExists(file);
+			}
+			Files.deleteIfExists(directory);
+		} catch (IOException e) {
+			// anything not deleted is left in the temporary directory
+		}
+	}
+
+	private static SweepResult await(Future<SweepResult> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private SweepResult runPinnedCombination(Map<String, String> combination, Path directory,
+			BlockingQueue<String> freeCpuLists) throws InterruptedException {
+		if (cpuLists.isEmpty()) return runCombination(combination, directory, null);
+		String cpuList = freeCpuLists.take();
+		try {
+			return runCombination(combination, directory, cpuList);
+		} finally {
+			freeCpuLists.add(cpuList);
+		}
+	}
+
+	private SweepResult runCombination(Map<String, String> combination, Path directory, String cpuList)
+			throws InterruptedException {
+		LocalRedisServer server;
+		try {
+			server = newServer(combination, directory, cpuList);
+		} catch (IOException | RuntimeException e) {
+			return new SweepResult(combination, null, e);
+		}
+		try {
+			server.start();
+			return new SweepResult(combination, loadHarness.run(server), null);
+		} catch (IOException | RuntimeException e) {
+			return new SweepResult(combination, null, e);
+		} finally {
+			stop(server);
+		}
+	}
+
+	private static void stop(LocalRedisServer server) throws InterruptedException {
+		try {
+			server.stop();
+		} catch (IOException e) {
+			server.destroy();
+		}
+	}
+
+	private LocalRedisServer newServer(Map<String, String> combination, Path directory, String cpuList)
+			throws IOException {
+		int port = PortAllocator.allocate();
+		Configuration.ProgrammaticBuilder builder = programmaticConfiguration()
+				.withProperty("save", "\"\"")
+				.withProperty("appendonly", "no")
+				.withProperty("dir", "\"" + directory + "\"")
+				.withProperty("dbfilename", "sweep-" + port + ".rdb")
+				.withProperty("appendfilename", "sweep-" + port + ".aof");
+		for (Entry<String, String> property : properties.entrySet()) {
+			builder.withProperty(property.getKey(), property.getValue());
+		}
+		for (Entry<String, String> property : combination.entrySet()) {
+			builder.withProperty(property.getKey(), property.getValue());
+		}
+		builder.withPort(port);
+		Execution.Builder execution = anExecution().withConfiguration(builder.build());
+		if (cpuList != null) execution.withCpuAffinity(cpuList);
+		return new LocalRedisServer(execution.build(), connectionProperties, new AlwaysDestroyLifecyclePolicy());
+	}
+
+	/**
+	 * A builder of {@code ConfigurationSweep} instances.
+	 */
+	public static final class Builder {
+		private final Map<String, List<String>> parameters = new LinkedHashMap<>();
+		private final Map<String, String> properties = new HashMap<>();
+		private LoadHarness loadHarness;
+		private Integer parallelism;
+		private List<String> cpuLists = Collections.emptyList();
+		private ConnectionProperties connectionProperties = ConnectionProperties.DEFAULT;
+
+		private Builder() { }
+
+		/**
+		 * Adds a {@code redis.conf} property to sweep over. Every value is tried in combination with every value of
+		 * the other swept properties.
+		 *
+		 * @return the updated builder
+		 * @throws IllegalArgumentException
+		 *             if no values are given, or the key is {@code port} or {@code unixsocket}
+		 */
+		public Builder withParameter(String key, String... values) {
+			if (values.length == 0) throw new IllegalArgumentException("A parameter needs at least one value");
+			checkKey(key);
+			parameters.put(key, Collections.unmodifiableList(Arrays.asList(values.clone())));
+			return this;
+		}
+
+		/**
+		 * Adds a {@code redis.conf} property shared by every combination. Swept properties take precedence.
+		 *
+		 * @return the updated builder
+		 * @see Configuration.ProgrammaticBuilder#withProperty(String, String)
+		 */
+		public Builder withProperty(String key, String value) {
+			checkKey(key);
+			properties.put(key, value);
+			return this;
+		}
+
+		private static void checkKey(String key) {
+			if ("port".equals(key) || "unixsocket".equals(key)) {
+				throw new IllegalArgumentException(key + " is chosen by the sweep and cannot be set");
+			}
+		}
+
+		/**
+		 * Sets the workload run against each server.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withLoadHarness(LoadHarness loadHarness) {
+			this.loadHarness = loadHarness;
+			return this;
+		}
+
+		/**
+		 * Sets the number of combinations which are run at the same time.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withParallelism(int parallelism) {
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * Pins each server to one of a number of CPU lists, so that servers running at the same time never share
+		 * CPUs. The lists should not overlap. Unless a parallelism is given, one combination runs for each list.
+		 *
+		 * @param cpuLists
+		 *            lists of CPU numbers and ranges, such as {@code 0-1} and {@code 2-3}
+		 * @return the updated builder
+		 * @throws IllegalArgumentException
+		 *             if no lists are given, or any is not a list of CPU numbers and ranges
+		 * @see Execution.Builder#withCpuAffinity(String)
+		 */
+		public Builder withCpuLists(String... cpuLists) {
+			if (cpuLists.length == 0) throw new IllegalArgumentException("At least one CPU list is needed");
+			for (String cpuList : cpuLists) {
+				Execution.Builder.checkCpuList(cpuList);
+			}
+			this.cpuLists = Collections.unmodifiableList(Arrays.asList(cpuLists.clone()));
+			return this;
+		}
+
+		/**
+		 * Sets the {@code ConnectionProperties} used by every server.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withConnectionProperties(ConnectionProperties connectionProperties) {
+			this.connectionProperties = connectionProperties;
+			return this;
+		}
+
+		/**
+		 * Creates a {@code ConfigurationSweep} from the current builder. If not specified, the workload is a
+		 * {@linkplain LoadHarness.Builder#build() default} {@code LoadHarness}, and combinations run one at a time,
+		 * or one for each CPU list. Unless overridden by properties, servers never save snapshots or append to a log.
+		 *
+		 * @return a {@code ConfigurationSweep} instance
+		 * @throws IllegalArgumentException
+		 *             if the parallelism is not positive, or greater than the number of CPU lists
+		 */
+		public ConfigurationSweep build() {
+			int parallelism = this.parallelism == null ? Math.max(1, cpuLists.size()) : this.parallelism;
+			if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive");
+			if (!cpuLists.isEmpty() && parallelism > cpuLists.size()) {
+				throw new IllegalArgumentException("Parallelism must be no greater than the number of CPU lists");
+			}
+			LoadHarness loadHarness = this.loadHarness == null ? aLoadHarness().build() : this.loadHarness;
+			return new ConfigurationSweep(this, loadHarness, parallelism);
+		}
+	}
+}
@@ -11,7 +11,12 @@ public final class ConnectionProperties {
 	 * <ul>
 	 * <li>5 maximum connection attempts</li>
 	 * <li>5 maximum readiness attempts</li>
+	 * <li>a fixed delay of 100 milliseconds between connection attempts</li>
+	 * <li>a fixed delay of 1000 milliseconds between readiness attempts</li>
+	 * <li>readiness checked with {@code PING}</li>
 	 * <li>a shutdown timeout of 10000 milliseconds</li>
+	 * <li>no sampling of {@code INFO} statistics</li>
+	 * <li>no latency watchdog, and an unresponsive threshold of 1000 milliseconds should one be enabled</li>
 	 * </ul>
 	 */
 	public static final ConnectionProperties DEFAULT = new Builder().build();
@@ -26,16 +31,63 @@ public final class ConnectionProperties {
 	 */
 	public final int maximumReadinessAttempts;
 
+	/**
+	 * The strategy for the delay between attempts at connecting to the server.
+	 */
+	public final BackoffStrategy connectionBackoff;
+
+	/**
+	 * The strategy for the delay between attempts at checking that the server is ready to accept requests.
+	 */
+	public final BackoffStrategy readinessBackoff;
+
+	/**
+	 * The check that the server is ready to accept requests.
+	 */
+	public final ReadinessCheck readinessCheck;
+
 	/**
 	 * The maximum time to wait for the server process to exit after requesting shutdown.
 	 */
 	public final long shutdownTimeoutMillis;
 
+	/**
+	 * The interval between samples of the server's {@code INFO} statistics while it is running, or {@code 0} if
+	 * statistics are not sampled.
+	 */
+	public final long infoSamplingIntervalMillis;
+
+	/**
+	 * The interval between samples of the server process's resource usage from {@code /proc} while it is running, or
+	 * {@code 0} if resource usage is not sampled.
+	 */
+	public final long processSamplingIntervalMillis;
+
+	/**
+	 * The interval between PINGs sent by the latency watchdog while the server is running, or {@code 0} if there is no
+	 * watchdog.
+	 */
+	public final long watchdogIntervalMillis;
+
+	/**
+	 * The round trip time of a watchdog PING above which the server is reported as unresponsive.
+	 */
+	public final long unresponsiveThresholdMillis;
+
 	private ConnectionProperties(int maximumConnectionAttempts, int maximumReadinessAttempts,
-			long shutdownTimeoutMillis) {
+			BackoffStrategy connectionBackoff, BackoffStrategy readinessBackoff, ReadinessCheck readinessCheck,
+			long shutdownTimeoutMillis, long infoSamplingIntervalMillis, long processSamplingIntervalMillis,
+			long watchdogIntervalMillis, long unresponsiveThresholdMillis) {
 		this.maximumConnectionAttempts = maximumConnectionAttempts;
 		this.maximumReadinessAttempts = maximumReadinessAttempts;
+		this.connectionBackoff = connectionBackoff;
+		this.readinessBackoff = readinessBackoff;
+		this.readinessCheck = readinessCheck;
 		this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+		this.infoSamplingIntervalMillis = infoSamplingIntervalMillis;
+		this.processSamplingIntervalMillis = processSamplingIntervalMillis;
+		this.watchdogIntervalMillis = watchdogIntervalMillis;
+		this.unresponsiveThresholdMillis = unresponsiveThresholdMillis;
 	}
 
 	/**
@@ -45,10 +97,20 @@ public final class ConnectionProperties {
 		private static final int DEFAULT_MAXIMUM_CONNECTION_ATTEMPTS = 5;
 		private static final int DEFAULT_MAXIMUM_READINESS_ATTEMPTS = 5;
 		private static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 10000;
+		private static final long DEFAULT_CONNECTION_DELAY_MILLIS = 100;
+		private static final long DEFAULT_READINESS_DELAY_MILLIS = 1000;
+		private static final long DEFAULT_UNRESPONSIVE_THRESHOLD_MILLIS = 1000;
 
 		private int maximumConnectionAttempts = DEFAULT_MAXIMUM_CONNECTION_ATTEMPTS;
 		private int maximumReadinessAttempts = DEFAULT_MAXIMUM_READINESS_ATTEMPTS;
+		private BackoffStrategy connectionBackoff = BackoffStrategy.fixed(DEFAULT_CONNECTION_DELAY_MILLIS);
+		private BackoffStrategy readinessBackoff = BackoffStrategy.fixed(DEFAULT_READINESS_DELAY_MILLIS);
+		private ReadinessCheck readinessCheck = ReadinessCheck.ping();
 		private long shutdownTimeoutMillis = DEFAULT_SHUTDOWN_TIMEOUT_MILLIS;
+		private long infoSamplingIntervalMillis;
+		private long processSamplingIntervalMillis;
+		private long watchdogIntervalMillis;
+		private long unresponsiveThresholdMillis = DEFAULT_UNRESPONSIVE_THRESHOLD_MILLIS;
 
 		/**
 		 * Sets the maximum number of connection attempts on the builder.
@@ -70,6 +132,36 @@ public final class ConnectionProperties {
 			return this;
 		}
 
+		/**
+		 * Sets the strategy for the delay between connection attempts on the builder.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withConnectionBackoff(BackoffStrategy connectionBackoff) {
+			this.connectionBackoff = connectionBackoff;
+			return this;
+		}
+
+		/**
+		 * Sets the strategy for the delay between readiness attempts on the builder.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withReadinessBackoff(BackoffStrategy readinessBackoff) {
+			this.readinessBackoff = readinessBackoff;
+			return this;
+		}
+
+		/**
+		 * Sets the check that the server is ready to accept requests on the builder.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withReadinessCheck(ReadinessCheck readinessCheck) {
+			this.readinessCheck = readinessCheck;
+			return this;
+		}
+
 		/**
 		 * Sets the maximum time to wait after requesting shutdown on the builder.
 		 *
@@ -80,13 +172,82 @@ public final class ConnectionProperties {
 			return this;
 		}
 
+		/**
+		 * Sets the interval between samples of the server's {@code INFO} statistics on the builder. The statistics are
+		 * published through {@link LocalRedisServerMBean}. Sampling uses a connection of its own. An interval of
+		 * {@code 0} disables sampling.
+		 *
+		 * @return the updated builder
+		 * @throws IllegalArgumentException
+		 *             if the interval is negative
+		 */
+		public Builder withInfoSamplingIntervalMillis(long infoSamplingIntervalMillis) {
+			if (infoSamplingIntervalMillis < 0) {
+				throw new IllegalArgumentException("Sampling interval must not be negative");
+			}
+			this.infoSamplingIntervalMillis = infoSamplingIntervalMillis;
+			return this;
+		}
+
+		/**
+		 * Sets the interval between samples of the server process's resource usage on the builder. Samples are read
+		 * from {@code /proc}, so are only taken on Linux, and are published through {@link LocalRedisServerMBean} and
+		 * {@link LocalRedisServer#processStatistics()}. An interval of {@code 0} disables sampling.
+		 *
+		 * @return the updated builder
+		 * @throws IllegalArgumentException
+		 *             if the interval is negative
+		 */
+		public Builder withProcessSamplingIntervalMillis(long processSamplingIntervalMillis) {
+			if (processSamplingIntervalMillis < 0) {
+				throw new IllegalArgumentException("Sampling interval must not be negative");
+			}
+			this.processSamplingIntervalMillis = processSamplingIntervalMillis;
+			return this;
+		}
+
+		/**
+		 * Sets the interval between PINGs sent by the latency watchdog on the builder. The watchdog uses a connection
+		 * of its own, and publishes the round trip latency through {@link LocalRedisServerMBean}. When a round trip
+		 * takes longer than the {@linkplain #withUnresponsiveThresholdMillis(long) unresponsive threshold},
+		 * {@link LifecyclePolicy#serverUnresponsive(RedisServer, long)} is invoked. An interval of {@code 0} disables
+		 * the watchdog.
+		 *
+		 * @return the updated builder
+		 * @throws IllegalArgumentException
+		 *             if the interval is negative
+		 */
+		public Builder withWatchdogIntervalMillis(long watchdogIntervalMillis) {
+			if (watchdogIntervalMillis < 0) {
+				throw new IllegalArgumentException("Watchdog interval must not be negative");
+			}
+			this.watchdogIntervalMillis = watchdogIntervalMillis;
+			return this;
+		}
+
+		/**
+		 * Sets the round trip time of a watchdog PING above which the server is reported as unresponsive on the
+		 * builder.
+		 *
+		 * @return the updated builder
+		 * @throws IllegalArgumentException
+		 *             if the threshold is not positive
+		 */
+		public Builder withUnresponsiveThresholdMillis(long unresponsiveThresholdMillis) {
+			if (unresponsiveThresholdMillis < 1) throw new IllegalArgumentException("Threshold must be positive");
+			this.unresponsiveThresholdMillis = unresponsiveThresholdMillis;
+			return this;
+		}
+
 		/**
 		 * Creates a {@code ConnectionProperties} instance from the current builder.
 		 *
 		 * @return a {@code ConnectionProperties} instance
 		 */
 		public ConnectionProperties build() {
-			return new ConnectionProperties(maximumConnectionAttempts, maximumReadinessAttempts, shutdownTimeoutMillis);
+			return new ConnectionProperties(maximumConnectionAttempts, maximumReadinessAttempts, connectionBackoff,
+					readinessBackoff, readinessCheck, shutdownTimeoutMillis, infoSamplingIntervalMillis,
+					processSamplingIntervalMillis, watchdogIntervalMillis, unresponsiveThresholdMillis);
 		}
 	}
 }
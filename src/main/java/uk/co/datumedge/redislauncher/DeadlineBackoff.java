@@ -0,0 +1,25 @@
+package uk.co.datumedge.redislauncher;
+
+/**
+ * A {@code BackoffStrategy} that gives up once a total time has elapsed.
+ *
+ * @see BackoffStrategy#withDeadline(long, BackoffStrategy)
+ */
+final class DeadlineBackoff implements BackoffStrategy {
+	private final long totalMillis;
+	private final BackoffStrategy strategy;
+
+	DeadlineBackoff(long totalMillis, BackoffStrategy strategy) {
+		if (totalMillis < 0) throw new IllegalArgumentException("Total time must not be negative");
+		this.totalMillis = totalMillis;
+		this.strategy = strategy;
+	}
+
+	@Override
+	public long delayMillis(int failedAttempts, long elapsedMillis) {
+		if (elapsedMillis >= totalMillis) return STOP;
+		long delay = strategy.delayMillis(failedAttempts, elapsedMillis);
+		if (delay == STOP) return STOP;
+		return Math.min(delay, totalMillis - elapsedMillis);
+	}
+}
@@ -0,0 +1,20 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+
+/**
+ * Checked exception thrown when a redis server replies to a command with an error.
+ */
+public final class ErrorReplyException extends IOException {
+	private static final long serialVersionUID = 3186547745071460286L;
+
+	/**
+	 * Constructs an {@code ErrorReplyException} with the specified detail message.
+	 *
+	 * @param message
+	 *            the detail message, which is the error reply sent by the server
+	 */
+	public ErrorReplyException(String message) {
+		super(message);
+	}
+}
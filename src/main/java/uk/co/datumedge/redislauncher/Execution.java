@@ -4,7 +4,17 @@ import static uk.co.datumedge.redislauncher.Configuration.defaultConfiguration;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
 
+import org.apache.commons.exec.CommandLine;
 import org.apache.commons.exec.DefaultExecuteResultHandler;
 import org.apache.commons.exec.DefaultExecutor;
 import org.apache.commons.exec.Executor;
@@ -13,11 +23,25 @@ import org.apache.commons.exec.PumpStreamHandler;
 
 /**
  * An execution of a redis server.  Used by a {@link LocalRedisServer} to start and stop a redis server process.
+ * <p>
+ * An execution can control how the operating system schedules the server, so that benchmark results are repeatable.
+ * The server's command line is then run by {@code numactl}, {@code taskset}, {@code nice} and {@code ionice}, in that
+ * order, each of which must be on the {@code PATH}. Each replaces itself with the next command, so the process ID of
+ * the execution is still the process ID of the server.
+ * <p>
+ * An execution can also place the server in its own cgroup v2, to limit the memory and CPU it may use so that one
+ * server cannot starve others on the same host. The server is then launched by {@code sh}, which moves itself into
+ * the cgroup before replacing itself with the server, so every process the server forks is in the cgroup too.
  */
 public final class Execution {
-	private ExecutionProcessDestroyer executionProcessDestroyer;
+	private static final String JOIN_CGROUP = "echo $$ > \"$0\" && exec \"$@\"";
+
+	private volatile ExecutionProcessDestroyer executionProcessDestroyer;
+	private volatile ReadyMessageDetector readyMessageDetector;
 	private final OutputStream outputStream;
 	private final OutputStream errorStream;
+	private final List<String> launcher;
+	private final Cgroup cgroup;
 	final Configuration configuration;
 
 	/**
@@ -29,27 +53,142 @@ public final class Execution {
 		return new Builder();
 	}
 
-	private Execution(Configuration configuration, OutputStream outputStream, OutputStream errorStream) {
+	private Execution(Configuration configuration, OutputStream outputStream, OutputStream errorStream,
+			List<String> launcher, Cgroup cgroup) {
 		this.configuration = configuration;
 		this.outputStream = outputStream;
 		this.errorStream = errorStream;
+		this.launcher = Collections.unmodifiableList(new ArrayList<>(launcher));
+		this.cgroup = cgroup;
 	}
 
 	DefaultExecuteResultHandler start(ProcessDestroyer lifecyleProcessDestroyer) throws IOException {
+		return start(lifecyleProcessDestroyer, null);
+	}
+
+	/**
+	 * Launches the server process. If an {@code exitListener} is given, it is told when the process exits, for whatever
+	 * reason.
+	 */
+	DefaultExecuteResultHandler start(ProcessDestroyer lifecyleProcessDestroyer,
+			ExitNotifyingResultHandler.Listener exitListener) throws IOException {
+		configuration.prepare();
+		if (cgroup != null) {
+			cgroup.create();
+			exitListener = removingCgroupOnExit(exitListener);
+		}
 		Executor executor = new DefaultExecutor();
-		DefaultExecuteResultHandler handler = new DefaultExecuteResultHandler();
+		DefaultExecuteResultHandler handler = exitListener == null
+				? new DefaultExecuteResultHandler()
+				: new ExitNotifyingResultHandler(exitListener);
 		this.executionProcessDestroyer = new ExecutionProcessDestroyer();
 		executor.setProcessDestroyer(new CompositeProcessDestroyer(
 				this.executionProcessDestroyer, lifecyleProcessDestroyer));
+		this.readyMessageDetector = new ReadyMessageDetector(outputStream);
 		executor.setStreamHandler(new PumpStreamHandler(
-				outputStream,
+				readyMessageDetector,
 				errorStream,
 				configuration.inputStream()));
-		executor.execute(configuration.commandLine(), handler);
+		executor.execute(commandLine(), handler);
 		return handler;
 	}
 
+	private ExitNotifyingResultHandler.Listener removingCgroupOnExit(ExitNotifyingResultHandler.Listener exitListener) {
+		return (handler, exitValue) -> {
+			cgroup.remove();
+			if (exitListener != null) exitListener.exited(handler, exitValue);
+		};
+	}
+
+	/**
+	 * Returns the command line which launches the server, including any commands which control its scheduling or
+	 * move it into its cgroup.
+	 */
+	CommandLine commandLine() throws IOException {
+		CommandLine server = configuration.commandLine();
+		List<String> prefix = new ArrayList<>();
+		Path procsFile = cgroup == null ? null : cgroup.procsFile();
+		if (procsFile != null) Collections.addAll(prefix, "sh", "-c", JOIN_CGROUP, procsFile.toString());
+		prefix.addAll(launcher);
+		if (prefix.isEmpty()) return server;
+		CommandLine commandLine = new CommandLine(prefix.get(0));
+		for (String argument : prefix.subList(1, prefix.size())) {
+			commandLine.addArgument(argument, false);
+		}
+		commandLine.addArgument(server.getExecutable(), false);
+		for (String argument : server.getArguments()) {
+			commandLine.addArgument(argument, false);
+		}
+		return commandLine;
+	}
+
+	ReadyMessageDetector readyMessageDetector() {
+		return readyMessageDetector;
+	}
+
+	/**
+	 * Returns the {@link System#nanoTime()} at which the server process was launched, or {@code 0} if it has not been
+	 * launched yet.
+	 */
+	long launchedNanos() {
+		ExecutionProcessDestroyer executionProcessDestroyer = this.executionProcessDestroyer;
+		return executionProcessDestroyer == null ? 0 : executionProcessDestroyer.launchedNanos();
+	}
+
+	/**
+	 * Returns the process ID of the server process, or {@code -1} if it is not running.
+	 */
+	long pid() {
+		ExecutionProcessDestroyer executionProcessDestroyer = this.executionProcessDestroyer;
+		Process process = executionProcessDestroyer == null ? null : executionProcessDestroyer.lastProcess();
+		return process != null && process.isAlive() ? process.pid() : -1;
+	}
+
+	/**
+	 * Returns the largest amount of memory used by the server, or {@code -1} if it is not known. If the server is in a
+	 * cgroup, this is the cgroup's peak memory usage, which includes forked children saving the dataset, and remains
+	 * known after the server stops. Otherwise it is the peak resident set size of the server process, which is only
+	 * known while the process is running.
+	 */
+	long peakMemoryBytes() {
+		long peak = cgroup == null ? -1 : cgroup.peakMemoryBytes();
+		return peak >= 0 ? peak : peakResidentSetBytes(pid());
+	}
+
+	private static long peakResidentSetBytes(long pid) {
+		if (pid < 0) return -1;
+		try {
+			for (String line : Files.readAllLines(Paths.get("/proc", Long.toString(pid), "status"),
+					StandardCharsets.US_ASCII)) {
+				if (line.startsWith("VmHWM:") && line.endsWith("kB")) {
+					String kilobytes = line.substring("VmHWM:".length(), line.length() - "kB".length());
+					return Long.parseLong(kilobytes.trim()) * 1024;
+				}
+			}
+		} catch (IOException e) {
+			// not running, or no procfs
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the CPU time used by the server, in milliseconds, or {@code -1} if it is not known. If the server is in
+	 * a cgroup, this includes forked children, and remains known after the server stops. Otherwise it is the CPU time
+	 * of the server process, which is only known while the process is running.
+	 */
+	long cpuTimeMillis() {
+		long micros = cgroup == null ? -1 : cgroup.cpuTimeMicros();
+		if (micros >= 0) return micros / 1000;
+		long pid = pid();
+		if (pid < 0) return -1;
+		return ProcessHandle.of(pid)
+				.flatMap(process -> process.info().totalCpuDuration())
+				.map(Duration::toMillis)
+				.orElse(-1L);
+	}
+
 	void destroy() {
+		ExecutionProcessDestroyer executionProcessDestroyer = this.executionProcessDestroyer;
 		if (executionProcessDestroyer != null) {
 			executionProcessDestroyer.destroy();
 		}
@@ -59,9 +198,18 @@ public final class Execution {
 	 * A builder of {@code Execution} instances.
 	 */
 	public static final class Builder {
+		private static final Pattern CPU_LIST = Pattern.compile("\\d+(-\\d+)?(,\\d+(-\\d+)?)*");
+
 		private Configuration configuration;
 		private OutputStream outputStream;
 		private OutputStream errorStream;
+		private String cpuList;
+		private int numaNode = -1;
+		private Integer niceness;
+		private Integer ioNiceness;
+		private Path cgroupParent;
+		private long memoryLimitBytes;
+		private double cpuLimit;
 
 		private Builder() { }
 
@@ -95,19 +243,156 @@ public final class Execution {
 			return this;
 		}
 
+		/**
+		 * Pins the server to a set of CPUs with {@code taskset}. The server's threads run only on those CPUs. To pin
+		 * particular redis threads within the set, use the {@code server_cpulist} and {@code bio_cpulist} properties.
+		 *
+		 * @param cpuList
+		 *            a list of CPU numbers and ranges, such as {@code 0-3,8}
+		 * @return the updated builder
+		 * @throws IllegalArgumentException
+		 *             if {@code cpuList} is not a list of CPU numbers and ranges
+		 * @see Configuration.ProgrammaticBuilder#withServerCpuList(String)
+		 */
+		public Builder withCpuAffinity(String cpuList) {
+			checkCpuList(cpuList);
+			this.cpuList = cpuList;
+			return this;
+		}
+
+		static void checkCpuList(String cpuList) {
+			if (!CPU_LIST.matcher(cpuList).matches()) {
+				throw new IllegalArgumentException("Not a list of CPUs: " + cpuList);
+			}
+		}
+
+		/**
+		 * Binds the server's CPUs and memory to a NUMA node with {@code numactl}. If a
+		 * {@linkplain #withCpuAffinity(String) CPU affinity} is also given, it takes precedence over the node's CPUs,
+		 * and memory is still allocated from the node.
+		 *
+		 * @return the updated builder
+		 * @throws IllegalArgumentException
+		 *             if {@code node} is negative
+		 */
+		public Builder withNumaNode(int node) {
+			if (node < 0) throw new IllegalArgumentException("NUMA node must not be negative");
+			this.numaNode = node;
+			return this;
+		}
+
+		/**
+		 * Sets the CPU scheduling priority of the server with {@code nice}. Lower values are scheduled more
+		 * favourably. Values below zero usually need elevated privileges.
+		 *
+		 * @param niceness
+		 *            a niceness from {@code -20} to {@code 19}
+		 * @return the updated builder
+		 * @throws IllegalArgumentException
+		 *             if {@code niceness} is out of range
+		 */
+		public Builder withNiceness(int niceness) {
+			if (niceness < -20 || niceness > 19) throw new IllegalArgumentException("Niceness must be from -20 to 19");
+			this.niceness = niceness;
+			return this;
+		}
+
+		/**
+		 * Sets the I/O scheduling priority of the server with {@code ionice}, in the best-effort scheduling class.
+		 * Lower values are scheduled more favourably.
+		 *
+		 * @param ioNiceness
+		 *            a priority from {@code 0} to {@code 7}
+		 * @return the updated builder
+		 * @throws IllegalArgumentException
+		 *             if {@code ioNiceness} is out of range
+		 */
+		public Builder withIoNiceness(int ioNiceness) {
+			if (ioNiceness < 0 || ioNiceness > 7) {
+				throw new IllegalArgumentException("I/O niceness must be from 0 to 7");
+			}
+			this.ioNiceness = ioNiceness;
+			return this;
+		}
+
+		/**
+		 * Places the server in a new cgroup v2 below {@code parent} each time it starts. The cgroup is removed once the
+		 * server process exits. The parent must be delegated to the user running the JVM and must not contain any
+		 * processes itself, so that its controllers can be enabled for the server's cgroup.
+		 *
+		 * @param parent
+		 *            a cgroup directory, such as {@code /sys/fs/cgroup/redis.slice}
+		 * @return the updated builder
+		 */
+		public Builder withCgroup(Path parent) {
+			this.cgroupParent = parent;
+			return this;
+		}
+
+		/**
+		 * Limits the memory used by the server's cgroup, including forked children saving the dataset, by setting
+		 * {@code memory.max}. The kernel reclaims memory from a cgroup which reaches its limit, and kills a process
+		 * in it if not enough can be reclaimed.
+		 *
+		 * @return the updated builder
+		 * @throws IllegalArgumentException
+		 *             if {@code bytes} is not positive
+		 * @see #withCgroup(Path)
+		 */
+		public Builder withMemoryLimit(long bytes) {
+			if (bytes < 1) throw new IllegalArgumentException("Memory limit must be positive");
+			this.memoryLimitBytes = bytes;
+			return this;
+		}
+
+		/**
+		 * Limits the CPU time used by the server's cgroup by setting {@code cpu.max}. The cgroup is throttled once it
+		 * has used its share of each 100 millisecond period.
+		 *
+		 * @param cpus
+		 *            the number of CPUs' worth of time the cgroup may use, such as {@code 1.5}
+		 * @return the updated builder
+		 * @throws IllegalArgumentException
+		 *             if {@code cpus} is not positive
+		 * @see #withCgroup(Path)
+		 */
+		public Builder withCpuLimit(double cpus) {
+			if (!(cpus > 0)) throw new IllegalArgumentException("CPU limit must be positive");
+			this.cpuLimit = cpus;
+			return this;
+		}
+
+		private List<String> launcher() {
+			List<String> launcher = new ArrayList<>();
+			if (numaNode >= 0) {
+				Collections.addAll(launcher, "numactl", "--cpunodebind=" + numaNode, "--membind=" + numaNode);
+			}
+			if (cpuList != null) Collections.addAll(launcher, "taskset", "-c", cpuList);
+			if (niceness != null) Collections.addAll(launcher, "nice", "-n", niceness.toString());
+			if (ioNiceness != null) Collections.addAll(launcher, "ionice", "-c", "2", "-n", ioNiceness.toString());
+			return launcher;
+		}
+
 		/**
 		 * Creates an {@code Execution} instance from the current builder. If no {@code Configuration} was specified,
 		 * {@linkplain Configuration.Builder#build() default configuration} is used. If no {@code outputStream} was
 		 * specified, {@code stdout} is swallowed. If no {@code errorStream} was specified, {@code stderr} is swallowed.
+		 * If no scheduling options were given, the server is launched directly.
 		 *
 		 * @return an {@code Execution} instance
 		 * @throws NullPointerException
 		 *             if no {@code Configuration} was specified and the {@code redislauncher.command} system
 		 *             property does not exist
+		 * @throws IllegalArgumentException
+		 *             if a memory or CPU limit was given without a cgroup
 		 */
 		public Execution build() {
+			if (cgroupParent == null && (memoryLimitBytes > 0 || cpuLimit > 0)) {
+				throw new IllegalArgumentException("Memory and CPU limits need a cgroup");
+			}
 			if (configuration == null) configuration = defaultConfiguration();
-			return new Execution(configuration, outputStream, errorStream);
+			Cgroup cgroup = cgroupParent == null ? null : new Cgroup(cgroupParent, memoryLimitBytes, cpuLimit);
+			return new Execution(configuration, outputStream, errorStream, launcher(), cgroup);
 		}
 	}
 }
@@ -7,23 +7,42 @@ import org.apache.commons.exec.ProcessDestroyer;
 
 final class ExecutionProcessDestroyer implements ProcessDestroyer {
 	private final Collection<Process> processes = new HashSet<Process>();
+	private volatile Process lastProcess;
+	private volatile long launchedNanos;
 
 	@Override
-	public boolean add(Process process) {
+	public synchronized boolean add(Process process) {
+		launchedNanos = System.nanoTime();
+		lastProcess = process;
 		return processes.add(process);
 	}
 
+	/**
+	 * Returns the process most recently launched, or {@code null} if none has been launched.
+	 */
+	Process lastProcess() {
+		return lastProcess;
+	}
+
+	/**
+	 * Returns the {@link System#nanoTime()} at which the most recent process was launched, or {@code 0} if none has
+	 * been launched.
+	 */
+	long launchedNanos() {
+		return launchedNanos;
+	}
+
 	@Override
-	public boolean remove(Process process) {
+	public synchronized boolean remove(Process process) {
 		return processes.remove(process);
 	}
 
 	@Override
-	public int size() {
+	public synchronized int size() {
 		return processes.size();
 	}
 
-	public void destroy() {
+	public synchronized void destroy() {
 		for (Process process : processes) {
 			process.destroy();
 		}
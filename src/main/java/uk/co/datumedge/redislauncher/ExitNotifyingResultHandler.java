@@ -0,0 +1,32 @@
+package uk.co.datumedge.redislauncher;
+
+import org.apache.commons.exec.DefaultExecuteResultHandler;
+import org.apache.commons.exec.ExecuteException;
+
+/**
+ * A {@code DefaultExecuteResultHandler} that also tells a listener when the process exits, whether it completed or
+ * failed. The listener is called on the thread that waited for the process, after the result has been recorded.
+ */
+final class ExitNotifyingResultHandler extends DefaultExecuteResultHandler {
+	private final Listener listener;
+
+	ExitNotifyingResultHandler(Listener listener) {
+		this.listener = listener;
+	}
+
+	@Override
+	public void onProcessComplete(int exitValue) {
+		super.onProcessComplete(exitValue);
+		listener.exited(this, exitValue);
+	}
+
+	@Override
+	public void onProcessFailed(ExecuteException e) {
+		super.onProcessFailed(e);
+		listener.exited(this, e.getExitValue());
+	}
+
+	interface Listener {
+		void exited(DefaultExecuteResultHandler handler, int exitValue);
+	}
+}
@@ -0,0 +1,37 @@
+package uk.co.datumedge.redislauncher;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A {@code BackoffStrategy} whose delay doubles after each failed attempt, with optional jitter.
+ *
+ * @see BackoffStrategy#exponential(long, long, double)
+ */
+final class ExponentialBackoff implements BackoffStrategy {
+	private static final int MAXIMUM_DOUBLINGS = 62;
+
+	private final long initialDelayMillis;
+	private final long maximumDelayMillis;
+	private final double jitter;
+
+	ExponentialBackoff(long initialDelayMillis, long maximumDelayMillis, double jitter) {
+		if (initialDelayMillis < 1) throw new IllegalArgumentException("Initial delay must be positive");
+		if (maximumDelayMillis < initialDelayMillis) {
+			throw new IllegalArgumentException("Maximum delay must not be less than initial delay");
+		}
+		if (!(jitter >= 0 && jitter <= 1)) throw new IllegalArgumentException("Jitter must be between 0 and 1");
+		this.initialDelayMillis = initialDelayMillis;
+		this.maximumDelayMillis = maximumDelayMillis;
+		this.jitter = jitter;
+	}
+
+	@Override
+	public long delayMillis(int failedAttempts, long elapsedMillis) {
+		int doublings = Math.min(failedAttempts - 1, MAXIMUM_DOUBLINGS);
+		long delay = initialDelayMillis > maximumDelayMillis >> doublings
+				? maximumDelayMillis
+				: initialDelayMillis << doublings;
+		if (jitter == 0) return delay;
+		return delay - (long) (delay * jitter * ThreadLocalRandom.current().nextDouble());
+	}
+}
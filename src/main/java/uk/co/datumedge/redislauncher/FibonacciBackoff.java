@@ -0,0 +1,32 @@
+package uk.co.datumedge.redislauncher;
+
+/**
+ * A {@code BackoffStrategy} whose delays grow as the Fibonacci sequence.
+ *
+ * @see BackoffStrategy#fibonacci(long, long)
+ */
+final class FibonacciBackoff implements BackoffStrategy {
+	private final long initialDelayMillis;
+	private final long maximumDelayMillis;
+
+	FibonacciBackoff(long initialDelayMillis, long maximumDelayMillis) {
+		if (initialDelayMillis < 1) throw new IllegalArgumentException("Initial delay must be positive");
+		if (maximumDelayMillis < initialDelayMillis) {
+			throw new IllegalArgumentException("Maximum delay must not be less than initial delay");
+		}
+		this.initialDelayMillis = initialDelayMillis;
+		this.maximumDelayMillis = maximumDelayMillis;
+	}
+
+	@Override
+	public long delayMillis(int failedAttempts, long elapsedMillis) {
+		long previous = 0;
+		long current = initialDelayMillis;
+		for (int i = 1; i < failedAttempts && current < maximumDelayMillis; i++) {
+			long next = previous + current;
+			previous = current;
+			current = next;
+		}
+		return Math.min(current, maximumDelayMillis);
+	}
+}
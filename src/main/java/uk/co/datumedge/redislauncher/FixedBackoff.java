@@ -0,0 +1,20 @@
+package uk.co.datumedge.redislauncher;
+
+/**
+ * A {@code BackoffStrategy} that waits the same time between every attempt.
+ *
+ * @see BackoffStrategy#fixed(long)
+ */
+final class FixedBackoff implements BackoffStrategy {
+	private final long delayMillis;
+
+	FixedBackoff(long delayMillis) {
+		if (delayMillis < 0) throw new IllegalArgumentException("Delay must not be negative");
+		this.delayMillis = delayMillis;
+	}
+
+	@Override
+	public long delayMillis(int failedAttempts, long elapsedMillis) {
+		return delayMillis;
+	}
+}
@@ -0,0 +1,205 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Samples a redis server's {@code INFO} statistics in the background, over a connection of its own which is kept open
+ * between samples. Each reply is parsed in place in the reply buffer, and the values are written into a fixed array,
+ * so sampling allocates nothing in the steady state.
+ */
+final class InfoSampler {
+	private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(2,
+			new DaemonThreadFactory("redis-info-sampler"));
+	private static final byte[][] INFO_COMMAND = {"INFO".getBytes(StandardCharsets.UTF_8)};
+	static final long UNKNOWN = -1;
+
+	/**
+	 * The statistics taken from each sample. Values are held as longs, except for those which are fractional, which are
+	 * held as the raw bits of a double.
+	 */
+	enum Statistic {
+		USED_MEMORY("used_memory"),
+		INSTANTANEOUS_OPS_PER_SEC("instantaneous_ops_per_sec"),
+		CONNECTED_CLIENTS("connected_clients"),
+		KEYSPACE_HITS("keyspace_hits"),
+		KEYSPACE_MISSES("keyspace_misses"),
+		EVICTED_KEYS("evicted_keys"),
+		MEM_FRAGMENTATION_RATIO("mem_fragmentation_ratio", true);
+
+		final byte[] field;
+		final boolean fractional;
+
+		Statistic(String field) {
+			this(field, false);
+		}
+
+		Statistic(String field, boolean fractional) {
+			this.field = field.getBytes(StandardCharsets.UTF_8);
+			this.fractional = fractional;
+		}
+	}
+
+	private static final Statistic[] STATISTICS = Statistic.values();
+
+	private final SocketAddress address;
+	private final long intervalMillis;
+	private final AtomicLongArray values = new AtomicLongArray(STATISTICS.length);
+	private volatile boolean running;
+	private volatile RedisControlConnection connection;
+	private ScheduledFuture<?> future;
+
+	InfoSampler(SocketAddress address, long intervalMillis) {
+		this.address = address;
+		this.intervalMillis = intervalMillis;
+		reset();
+	}
+
+	synchronized void start() {
+		if (future != null) return;
+		running = true;
+		future = SCHEDULER.scheduleWithFixedDelay(this::sample, 0, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops sampling. A sample in progress is abandoned by closing its connection, rather than waited for. The last
+	 * values sampled are kept.
+	 */
+	synchronized void stop() {
+		running = false;
+		if (future != null) {
+			future.cancel(false);
+			future = null;
+		}
+		closeConnection();
+	}
+
+	void sample() {
+		if (!running) return;
+		try {
+			RedisControlConnection connection = this.connection;
+			if (connection == null || !connection.isOpen()) {
+				connection = RedisControlConnection.open(address);
+				this.connection = connection;
+			}
+			if (!running) {
+				closeConnection();
+				return;
+			}
+			connection.append(INFO_COMMAND).flush();
+			parse(connection.nextReply().content(), values);
+		} catch (IOException | RuntimeException e) {
+			// the next sample reconnects; an exception here would cancel all further samples
+			closeConnection();
+		}
+	}
+
+	private void closeConnection() {
+		RedisControlConnection connection = this.connection;
+		if (connection == null) return;
+		this.connection = null;
+		try {
+			connection.close();
+		} catch (IOException e) {
+			// nothing more can be done with a connection that failed to close
+		}
+	}
+
+	private void reset() {
+		for (int i = 0; i < STATISTICS.length; i++) {
+			values.set(i, STATISTICS[i].fractional ? Double.doubleToRawLongBits(UNKNOWN) : UNKNOWN);
+		}
+	}
+
+	long get(Statistic statistic) {
+		return values.get(statistic.ordinal());
+	}
+
+	double getFractional(Statistic statistic) {
+		return Double.longBitsToDouble(values.get(statistic.ordinal()));
+	}
+
+	/**
+	 * Parses the {@code field:value} lines of an {@code INFO} reply, storing the value of each statistic found.
+	 * Statistics absent from the reply keep their previous values.
+	 */
+	static void parse(ByteBuffer info, AtomicLongArray values) {
+		int end = info.limit();
+		int lineStart = info.position();
+		while (lineStart < end) {
+			int lineEnd = lineStart;
+			while (lineEnd < end && info.get(lineEnd) != '\r' && info.get(lineEnd) != '\n') lineEnd++;
+			parseLine(info, lineStart, lineEnd, values);
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	private static void parseLine(ByteBuffer info, int start, int end, AtomicLongArray values) {
+		if (start == end || info.get(start) == '#') return;
+		for (Statistic statistic : STATISTICS) {
+			int valueStart = start + statistic.field.length + 1;
+			if (valueStart > end || info.get(valueStart - 1) != ':' || !startsWith(info, start, statistic.field)) {
+				continue;
+			}
+			if (statistic.fractional) {
+				double value = parseDouble(info, valueStart, end);
+				if (!Double.isNaN(value)) values.set(statistic.ordinal(), Double.doubleToRawLongBits(value));
+			} else {
+				long value = parseLong(info, valueStart, end);
+				if (value != Long.MIN_VALUE) values.set(statistic.ordinal(), value);
+			}
+			return;
+		}
+	}
+
+	private static boolean startsWith(ByteBuffer info, int start, byte[] prefix) {
+		for (int i = 0; i < prefix.length; i++) {
+			if (info.get(start + i) != prefix[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the value of a non-negative decimal integer, or {@link Long#MIN_VALUE} if it is malformed.
+	 */
+	private static long parseLong(ByteBuffer info, int start, int end) {
+		if (start == end) return Long.MIN_VALUE;
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			byte b = info.get(i);
+			if (b < '0' || b > '9') return Long.MIN_VALUE;
+			value = value * 10 + (b - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the value of a non-negative decimal number such as {@code 1.25}, or {@link Double#NaN} if it is
+	 * malformed.
+	 */
+	private static double parseDouble(ByteBuffer info, int start, int end) {
+		long digits = 0;
+		long scale = 1;
+		boolean fraction = false;
+		if (start == end) return Double.NaN;
+		for (int i = start; i < end; i++) {
+			byte b = info.get(i);
+			if (b == '.' && !fraction) {
+				fraction = true;
+			} else if (b >= '0' && b <= '9') {
+				digits = digits * 10 + (b - '0');
+				if (fraction) scale *= 10;
+			} else {
+				return Double.NaN;
+			}
+		}
+		return (double) digits / scale;
+	}
+}
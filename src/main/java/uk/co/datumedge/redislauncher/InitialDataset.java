@@ -0,0 +1,49 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * An RDB file loaded by a redis server when it starts. The file is placed in a working directory of the server's own,
+ * so that the server cannot replace the original when it saves its dataset.
+ */
+final class InitialDataset {
+	static final String FILENAME = "dump.rdb";
+
+	private final Path rdb;
+	final Path workingDirectory;
+
+	private InitialDataset(Path rdb, Path workingDirectory) {
+		this.rdb = rdb;
+		this.workingDirectory = workingDirectory;
+	}
+
+	/**
+	 * Creates a new temporary working directory for an initial dataset. The directory and the RDB file placed in it
+	 * are deleted when the JVM exits, if the directory holds nothing else by then.
+	 */
+	static InitialDataset create(Path rdb) throws IOException {
+		Path workingDirectory = Files.createTempDirectory("redislauncher-dataset");
+		workingDirectory.toFile().deleteOnExit();
+		// registered once, rather than on every place(), and after the directory so that it is deleted first
+		workingDirectory.resolve(FILENAME).toFile().deleteOnExit();
+		return new InitialDataset(rdb, workingDirectory);
+	}
+
+	/**
+	 * Replaces the server's RDB file with a hard link to the initial dataset, or with a copy if the link cannot be
+	 * made.
+	 */
+	synchronized void place() throws IOException {
+		Path target = workingDirectory.resolve(FILENAME);
+		Files.deleteIfExists(target);
+		try {
+			Files.createLink(target, rdb);
+		} catch (IOException | UnsupportedOperationException e) {
+			// links cannot cross file systems, and may be forbidden for files owned by other users
+			Files.copy(rdb, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
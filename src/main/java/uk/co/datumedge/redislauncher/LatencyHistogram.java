@@ -0,0 +1,94 @@
+package uk.co.datumedge.redislauncher;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies, cheap enough to record every lifecycle operation. Latencies are held in
+ * microseconds, in buckets whose width grows with their value: each power of two is split into 16 sub-buckets, so any
+ * recorded value is within about 6% of its bucket's bounds.
+ * <p>
+ * Recording is a handful of atomic increments and never blocks. A {@linkplain #summary() summary} read while values are
+ * being recorded may include some of them and not others.
+ */
+final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a latency. Negative latencies are recorded as zero.
+	 */
+	void record(long duration, TimeUnit unit) {
+		long micros = Math.max(0, unit.toMicros(duration));
+		counts.incrementAndGet(bucketOf(micros));
+		sum.add(micros);
+		min.accumulateAndGet(micros, Math::min);
+		max.accumulateAndGet(micros, Math::max);
+	}
+
+	void recordNanosSince(long startNanos) {
+		record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+	}
+
+	static int bucketOf(long micros) {
+		if (micros < SUB_BUCKETS) return (int) micros;
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+		int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Returns the largest value that falls into a bucket.
+	 */
+	static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKETS) return bucket;
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		long subBucket = SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Takes a snapshot of the histogram's count, mean, extremes and percentiles.
+	 */
+	LatencySummary summary() {
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		if (count == 0) return LatencySummary.EMPTY;
+
+		long max = this.max.get();
+		return new LatencySummary(count,
+				millis(sum.sum()) / count,
+				millis(min.get()),
+				millis(max),
+				millis(percentile(snapshot, count, 0.5, max)),
+				millis(percentile(snapshot, count, 0.9, max)),
+				millis(percentile(snapshot, count, 0.99, max)),
+				millis(percentile(snapshot, count, 0.999, max)));
+	}
+
+	private static long percentile(long[] snapshot, long count, double fraction, long max) {
+		long rank = (long) Math.ceil(fraction * count);
+		long seen = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) return Math.min(upperBoundOf(i), max);
+		}
+		return max;
+	}
+
+	private static double millis(long micros) {
+		return micros / 1000.0;
+	}
+}
@@ -0,0 +1,112 @@
+package uk.co.datumedge.redislauncher;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+
+/**
+ * A summary of the latencies in a {@link LatencyHistogram}. All latencies are in milliseconds.
+ */
+final class LatencySummary {
+	static final LatencySummary EMPTY = new LatencySummary(0, 0, 0, 0, 0, 0, 0, 0);
+
+	private static final String[] ITEMS = {
+			"count", "mean", "min", "max", "median", "percentile90", "percentile99", "percentile999"};
+	private static final CompositeType COMPOSITE_TYPE = compositeType();
+
+	private final long count;
+	private final double mean;
+	private final double min;
+	private final double max;
+	private final double median;
+	private final double percentile90;
+	private final double percentile99;
+	private final double percentile999;
+
+	LatencySummary(long count, double mean, double min, double max, double median, double percentile90,
+			double percentile99, double percentile999) {
+		this.count = count;
+		this.mean = mean;
+		this.min = min;
+		this.max = max;
+		this.median = median;
+		this.percentile90 = percentile90;
+		this.percentile99 = percentile99;
+		this.percentile999 = percentile999;
+	}
+
+	long getCount() {
+		return count;
+	}
+
+	double getMean() {
+		return mean;
+	}
+
+	double getMin() {
+		return min;
+	}
+
+	double getMax() {
+		return max;
+	}
+
+	double getMedian() {
+		return median;
+	}
+
+	double getPercentile90() {
+		return percentile90;
+	}
+
+	double getPercentile99() {
+		return percentile99;
+	}
+
+	double getPercentile999() {
+		return percentile999;
+	}
+
+	/**
+	 * Converts the summary to open data, so that any JMX client can read it without this class on its classpath.
+	 */
+	CompositeData toCompositeData() {
+		try {
+			return new CompositeDataSupport(COMPOSITE_TYPE, ITEMS, new Object[] {
+					count, mean, min, max, median, percentile90, percentile99, percentile999});
+		} catch (OpenDataException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static CompositeType compositeType() {
+		OpenType<?>[] types = new OpenType<?>[ITEMS.length];
+		types[0] = SimpleType.LONG;
+		for (int i = 1; i < types.length; i++) {
+			types[i] = SimpleType.DOUBLE;
+		}
+		String[] descriptions = {
+				"Number of latencies recorded",
+				"Mean latency in milliseconds",
+				"Minimum latency in milliseconds",
+				"Maximum latency in milliseconds",
+				"50th percentile latency in milliseconds",
+				"90th percentile latency in milliseconds",
+				"99th percentile latency in milliseconds",
+				"99.9th percentile latency in milliseconds"};
+		try {
+			return new CompositeType("LatencySummary", "Latencies of a lifecycle step", ITEMS, descriptions, types);
+		} catch (OpenDataException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + count + " mean=" + mean + " min=" + min + " max=" + max + " p50=" + median +
+				" p90=" + percentile90 + " p99=" + percentile99 + " p99.9=" + percentile999;
+	}
+}
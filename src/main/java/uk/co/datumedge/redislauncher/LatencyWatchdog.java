@@ -0,0 +1,122 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends PING to a redis server at a fixed rate in the background, over a connection of its own which is kept open
+ * between pings, and records the round trip latency of each. When a round trip takes longer than the threshold, the
+ * listener is told once for that ping. A ping which has not been answered is checked against the threshold at each
+ * tick, so a server which has stalled completely is reported without waiting for its reply.
+ * <p>
+ * Each ping is sent from a thread of its own, so that a stalled server blocks neither the ticks of its own watchdog
+ * nor the watchdogs of other servers. No more than one ping is in flight at a time.
+ */
+final class LatencyWatchdog {
+	private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+			new DaemonThreadFactory("redis-latency-watchdog"));
+	private static final Executor PINGER = Executors.newCachedThreadPool(
+			new DaemonThreadFactory("redis-latency-watchdog-ping"));
+	private static final byte[][] PING_COMMAND = {"PING".getBytes(StandardCharsets.UTF_8)};
+
+	final LatencyHistogram roundTrips = new LatencyHistogram();
+
+	private final SocketAddress address;
+	private final long intervalMillis;
+	private final long thresholdNanos;
+	private final Listener listener;
+	private final AtomicBoolean inFlight = new AtomicBoolean();
+	private final AtomicBoolean reported = new AtomicBoolean();
+	private volatile long sentNanos;
+	private volatile boolean running;
+	private volatile RedisControlConnection connection;
+	private ScheduledFuture<?> future;
+
+	LatencyWatchdog(SocketAddress address, long intervalMillis, long thresholdMillis, Listener listener) {
+		this.address = address;
+		this.intervalMillis = intervalMillis;
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.listener = listener;
+	}
+
+	synchronized void start() {
+		if (future != null) return;
+		running = true;
+		future = SCHEDULER.scheduleAtFixedRate(this::tick, 0, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops pinging. A ping in flight is abandoned by closing its connection, rather than waited for.
+	 */
+	synchronized void stop() {
+		running = false;
+		if (future != null) {
+			future.cancel(false);
+			future = null;
+		}
+		closeConnection();
+	}
+
+	private void tick() {
+		if (inFlight.compareAndSet(false, true)) {
+			sentNanos = System.nanoTime();
+			reported.set(false);
+			PINGER.execute(this::ping);
+		} else {
+			checkLatency(System.nanoTime() - sentNanos);
+		}
+	}
+
+	private void ping() {
+		try {
+			RedisControlConnection connection = this.connection;
+			if (connection == null || !connection.isOpen()) {
+				connection = RedisControlConnection.open(address);
+				this.connection = connection;
+			}
+			if (!running) {
+				closeConnection();
+				return;
+			}
+			sentNanos = System.nanoTime();
+			connection.append(PING_COMMAND).flush();
+			connection.nextReply();
+			long latencyNanos = System.nanoTime() - sentNanos;
+			roundTrips.record(latencyNanos, TimeUnit.NANOSECONDS);
+			checkLatency(latencyNanos);
+		} catch (IOException | RuntimeException e) {
+			// the next ping reconnects
+			closeConnection();
+		} finally {
+			inFlight.set(false);
+		}
+	}
+
+	private void checkLatency(long latencyNanos) {
+		if (running && latencyNanos > thresholdNanos && reported.compareAndSet(false, true)) {
+			listener.unresponsive(TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+		}
+	}
+
+	private void closeConnection() {
+		RedisControlConnection connection = this.connection;
+		if (connection == null) return;
+		this.connection = null;
+		try {
+			connection.close();
+		} catch (IOException e) {
+			// nothing more can be done with a connection that failed to close
+		}
+	}
+
+	interface Listener {
+		void unresponsive(long latencyMillis);
+	}
+}
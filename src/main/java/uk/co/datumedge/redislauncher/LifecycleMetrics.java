@@ -0,0 +1,41 @@
+package uk.co.datumedge.redislauncher;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings and counts of the lifecycle operations of a {@link LocalRedisServer}, recorded without locking so that they
+ * can always be on.
+ */
+final class LifecycleMetrics {
+	final LatencyHistogram forkTime = new LatencyHistogram();
+	final LatencyHistogram firstConnectTime = new LatencyHistogram();
+	final LatencyHistogram readyTime = new LatencyHistogram();
+	final LatencyHistogram shutdownTime = new LatencyHistogram();
+	final LatencyHistogram downtime = new LatencyHistogram();
+	final AtomicLong connectionAttempts = new AtomicLong();
+	final AtomicLong readinessAttempts = new AtomicLong();
+	final AtomicLong unexpectedExits = new AtomicLong();
+	final AtomicLong unresponsiveCount = new AtomicLong();
+	private final AtomicLong starts = new AtomicLong();
+	private volatile long readyAtNanos;
+	private volatile boolean running;
+
+	void ready() {
+		starts.incrementAndGet();
+		readyAtNanos = System.nanoTime();
+		running = true;
+	}
+
+	void stopped() {
+		running = false;
+	}
+
+	long restartCount() {
+		return Math.max(0, starts.get() - 1);
+	}
+
+	long uptimeMillis() {
+		return running ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - readyAtNanos) : 0;
+	}
+}
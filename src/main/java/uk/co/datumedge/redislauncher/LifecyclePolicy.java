@@ -26,6 +26,33 @@ public interface LifecyclePolicy {
 	 */
 	void failedToStop(RedisServer redisServer, Throwable cause) throws FailedToStopException;
 
+	/**
+	 * Invoked when the server process exited while the server was running, without being stopped or destroyed. This
+	 * method is called on the thread that watched the process, so an implementation must not block. The default
+	 * implementation does nothing.
+	 *
+	 * @param redisServer
+	 *            the server whose process exited
+	 * @param exitValue
+	 *            the exit value of the process
+	 */
+	default void exitedUnexpectedly(RedisServer redisServer, int exitValue) {
+	}
+
+	/**
+	 * Invoked when a PING sent by the server's {@linkplain ConnectionProperties#watchdogIntervalMillis latency
+	 * watchdog} took longer than the {@linkplain ConnectionProperties#unresponsiveThresholdMillis threshold} to be
+	 * answered, or has not been answered within it. This method is called at most once per PING, on a watchdog thread,
+	 * so an implementation must not block. The default implementation does nothing.
+	 *
+	 * @param redisServer
+	 *            the server which was slow to respond
+	 * @param latencyMillis
+	 *            the round trip time of the PING, or the time it has been waiting so far if it has not been answered
+	 */
+	default void serverUnresponsive(RedisServer redisServer, long latencyMillis) {
+	}
+
 	/**
 	 * Get a {@code ProcessDestroyer} that can be used to destroy a redis server outside of its normal lifecycle. This
 	 * is useful for destroying a redis server process when the JVM terminates, for example. An implementation should
@@ -0,0 +1,392 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a pipelined workload against a running server from inside the JVM, in the manner of
+ * {@code redis-benchmark}, so that servers with different configurations can be compared without shelling out.
+ *
+ * <pre>
+ * LoadHarness harness = aLoadHarness()
+ * 		.withConnections(8)
+ * 		.withOperation(Operation.GET, 9)
+ * 		.withOperation(Operation.SET, 1)
+ * 		.withKeyDistribution(KeyDistribution.ZIPFIAN)
+ * 		.build();
+ * LoadResult result = harness.run(server);
+ * </pre>
+ *
+ * Each connection runs on its own thread and repeatedly sends a batch of commands, then reads every reply before
+ * sending the next batch. Commands, keys and values are chosen from a random number generator seeded by
+ * {@link Builder#withSeed(long)}, so a run sends the same commands every time. The keys read by {@code GET} are
+ * written before timing starts, so that every {@code GET} finds a value.
+ */
+public final class LoadHarness {
+	/**
+	 * A command sent by the harness.
+	 */
+	public enum Operation {
+		/** {@code GET key:n} */
+		GET("GET", "key:", false),
+		/** {@code SET key:n value} */
+		SET("SET", "key:", true),
+		/** {@code INCR counter:n} */
+		INCR("INCR", "counter:", false),
+		/** {@code LPUSH list:n value}. Lists grow for as long as the harness runs. */
+		LPUSH("LPUSH", "list:", true);
+
+		private final byte[] command;
+		private final String keyPrefix;
+		private final boolean hasValue;
+
+		private Operation(String command, String keyPrefix, boolean hasValue) {
+			this.command = command.getBytes(StandardCharsets.UTF_8);
+			this.keyPrefix = keyPrefix;
+			this.hasValue = hasValue;
+		}
+	}
+
+	/**
+	 * How keys are chosen from the key space.
+	 */
+	public enum KeyDistribution {
+		/** Every key is equally likely. */
+		UNIFORM,
+		/**
+		 * Keys follow a Zipfian distribution with exponent 0.99, as in YCSB, so a few keys receive most of the
+		 * operations.
+		 */
+		ZIPFIAN
+	}
+
+	private static final double ZIPFIAN_THETA = 0.99;
+
+	private final int connections;
+	private final int pipelineDepth;
+	private final Operation[] operations;
+	private final int[] cumulativeWeights;
+	private final int keySpace;
+	private final KeyDistribution keyDistribution;
+	private final int valueSize;
+	private final long requests;
+	private final long seed;
+
+	/**
+	 * Creates a {@code LoadHarness} builder.
+	 *
+	 * @return a {@code LoadHarness} builder instance
+	 */
+	public static Builder aLoadHarness() {
+		return new Builder();
+	}
+
+	private LoadHarness(Builder builder) {
+		this.connections = builder.connections;
+		this.pipelineDepth = builder.pipelineDepth;
+		this.operations = builder.weights.keySet().toArray(new Operation[0]);
+		this.cumulativeWeights = new int[operations.length];
+		int total = 0;
+		int i = 0;
+		for (int weight : builder.weights.values()) {
+			total += weight;
+			cumulativeWeights[i++] = total;
+		}
+		this.keySpace = builder.keySpace;
+		this.keyDistribution = builder.keyDistribution;
+		this.valueSize = builder.valueSize;
+		this.requests = builder.requests;
+		this.seed = builder.seed;
+	}
+
+	/**
+	 * Runs the workload against a server, blocking until every request has received a reply.
+	 *
+	 * @param server
+	 *            a started server
+	 * @return the throughput and latencies of the run
+	 * @throws IOException
+	 *             if a connection could not be opened, or a command could not be sent or its reply read
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the connections to finish
+	 */
+	public LoadResult run(LocalRedisServer server) throws IOException, InterruptedException {
+		SocketAddress address = server.socketAddress();
+		SplittableRandom random = new SplittableRandom(seed);
+		byte[] value = randomValue(random);
+		Map<Operation, byte[][]> keys = encodeKeys();
+		ZipfianGenerator zipfian = keyDistribution == KeyDistribution.ZIPFIAN
+				? new ZipfianGenerator(keySpace, ZIPFIAN_THETA) : null;
+
+		List<Worker> workers = new ArrayList<>(connections);
+		ExecutorService executor = Executors.newFixedThreadPool(connections,
+				new DaemonThreadFactory("redislauncher-load"));
+		try {
+			for (int i = 0; i < connections; i++) {
+				long share = requests / connections + (i < requests % connections ? 1 : 0);
+				RedisControlConnection connection = RedisControlConnection.open(address);
+				workers.add(new Worker(connection, random.split(), share, keys, value, zipfian));
+			}
+			if (keys.containsKey(Operation.GET)) preload(workers.get(0).connection, keys.get(Operation.GET), value);
+
+			LatencyHistogram latencies = new LatencyHistogram();
+			long startNanos = System.nanoTime();
+			List<Future<Long>> results = new ArrayList<>(connections);
+			for (Worker worker : workers) {
+				results.add(executor.submit(() -> worker.run(latencies)));
+			}
+			long errors = 0;
+			for (Future<Long> result : results) {
+				errors += await(result);
+			}
+			return new LoadResult(requests, errors, System.nanoTime() - startNanos, latencies.summary());
+		} finally {
+			executor.shutdownNow();
+			for (Worker worker : workers) {
+				worker.connection.close();
+			}
+		}
+	}
+
+	private static long await(Future<Long> result) throws IOException, InterruptedException {
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private byte[] randomValue(SplittableRandom random) {
+		byte[] value = new byte[valueSize];
+		for (int i = 0; i < valueSize; i++) {
+			value[i] = (byte) ('a' + random.nextInt(26));
+		}
+		return value;
+	}
+
+	private Map<Operation, byte[][]> encodeKeys() {
+		Map<Operation, byte[][]> keys = new EnumMap<>(Operation.class);
+		Map<String, byte[][]> byPrefix = new HashMap<>();
+		for (Operation operation : operations) {
+			keys.put(operation, byPrefix.computeIfAbsent(operation.keyPrefix, this::encodeKeys));
+		}
+		return keys;
+	}
+
+	private byte[][] encodeKeys(String prefix) {
+		byte[][] keys = new byte[keySpace][];
+		for (int i = 0; i < keySpace; i++) {
+			keys[i] = (prefix + i).getBytes(StandardCharsets.UTF_8);
+		}
+		return keys;
+	}
+
+	private static void preload(RedisControlConnection connection, byte[][] keys, byte[] value) throws IOException {
+		for (int start = 0; start < keys.length; start += RedisControlConnection.PIPELINE_BATCH_SIZE) {
+			int end = Math.min(keys.length, start + RedisControlConnection.PIPELINE_BATCH_SIZE);
+			for (int i = start; i < end; i++) {
+				connection.append(Operation.SET.command, keys[i], value);
+			}
+			connection.flush();
+			connection.awaitReplies(end - start);
+		}
+	}
+
+	private final class Worker {
+		private final RedisControlConnection connection;
+		private final SplittableRandom random;
+		private final long requests;
+		private final Map<Operation, byte[][]> keys;
+		private final byte[] value;
+		private final ZipfianGenerator zipfian;
+
+		Worker(RedisControlConnection connection, SplittableRandom random, long requests,
+				Map<Operation, byte[][]> keys, byte[] value, ZipfianGenerator zipfian) {
+			this.connection = connection;
+			this.random = random;
+			this.requests = requests;
+			this.keys = keys;
+			this.value = value;
+			this.zipfian = zipfian;
+		}
+
+		long run(LatencyHistogram latencies) throws IOException {
+			long errors = 0;
+			for (long sent = 0; sent < requests; ) {
+				int batch = (int) Math.min(pipelineDepth, requests - sent);
+				for (int i = 0; i < batch; i++) {
+					Operation operation = nextOperation();
+					byte[] key = keys.get(operation)[nextKey()];
+					if (operation.hasValue) {
+						connection.append(operation.command, key, value);
+					} else {
+						connection.append(operation.command, key);
+					}
+				}
+				long sentNanos = System.nanoTime();
+				connection.flush();
+				for (int i = 0; i < batch; i++) {
+					try {
+						connection.nextReply().skipElements();
+					} catch (ErrorReplyException e) {
+						errors++;
+					}
+					latencies.recordNanosSince(sentNanos);
+				}
+				sent += batch;
+			}
+			return errors;
+		}
+
+		private Operation nextOperation() {
+			int ticket = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+			int i = 0;
+			while (ticket >= cumulativeWeights[i]) i++;
+			return operations[i];
+		}
+
+		private int nextKey() {
+			return zipfian == null ? random.nextInt(keySpace) : (int) zipfian.next(random);
+		}
+	}
+
+	/**
+	 * A builder of {@code LoadHarness} instances.
+	 */
+	public static final class Builder {
+		private static final int DEFAULT_CONNECTIONS = 4;
+		private static final int DEFAULT_PIPELINE_DEPTH = 16;
+		private static final int DEFAULT_KEY_SPACE = 10000;
+		private static final int DEFAULT_VALUE_SIZE = 64;
+		private static final long DEFAULT_REQUESTS = 100000;
+
+		private int connections = DEFAULT_CONNECTIONS;
+		private int pipelineDepth = DEFAULT_PIPELINE_DEPTH;
+		private final Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+		private int keySpace = DEFAULT_KEY_SPACE;
+		private KeyDistribution keyDistribution = KeyDistribution.UNIFORM;
+		private int valueSize = DEFAULT_VALUE_SIZE;
+		private long requests = DEFAULT_REQUESTS;
+		private long seed;
+
+		private Builder() { }
+
+		/**
+		 * Sets the number of connections, each of which runs on its own thread.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withConnections(int connections) {
+			this.connections = connections;
+			return this;
+		}
+
+		/**
+		 * Sets the number of commands each connection sends before reading their replies.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withPipelineDepth(int pipelineDepth) {
+			this.pipelineDepth = pipelineDepth;
+			return this;
+		}
+
+		/**
+		 * Adds an operation to the workload. Each command is chosen at random, in proportion to the weights of the
+		 * operations added.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withOperation(Operation operation, int weight) {
+			if (weight < 1) throw new IllegalArgumentException("Weight must be positive");
+			weights.put(operation, weight);
+			return this;
+		}
+
+		/**
+		 * Sets the number of distinct keys used by each operation.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withKeySpace(int keySpace) {
+			this.keySpace = keySpace;
+			return this;
+		}
+
+		/**
+		 * Sets how keys are chosen from the key space.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withKeyDistribution(KeyDistribution keyDistribution) {
+			this.keyDistribution = keyDistribution;
+			return this;
+		}
+
+		/**
+		 * Sets the size in bytes of the values written by {@code SET} and {@code LPUSH}.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withValueSize(int valueSize) {
+			this.valueSize = valueSize;
+			return this;
+		}
+
+		/**
+		 * Sets the total number of commands sent, which are shared evenly between the connections.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withRequests(long requests) {
+			this.requests = requests;
+			return this;
+		}
+
+		/**
+		 * Sets the seed from which commands, keys and values are chosen.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withSeed(long seed) {
+			this.seed = seed;
+			return this;
+		}
+
+		/**
+		 * Creates a {@code LoadHarness} from the current builder. If not specified, the harness sends 100000 commands,
+		 * equally split between {@code GET} and {@code SET}, over 4 connections with a pipeline depth of 16. Keys are
+		 * chosen uniformly from 10000, and values are 64 bytes.
+		 *
+		 * @return a {@code LoadHarness} instance
+		 * @throws IllegalArgumentException
+		 *             if the connections, pipeline depth or key space are not positive, or the value size or number of
+		 *             requests is negative
+		 */
+		public LoadHarness build() {
+			if (connections < 1) throw new IllegalArgumentException("Connections must be positive");
+			if (pipelineDepth < 1) throw new IllegalArgumentException("Pipeline depth must be positive");
+			if (keySpace < 1) throw new IllegalArgumentException("Key space must be positive");
+			if (valueSize < 0) throw new IllegalArgumentException("Value size must not be negative");
+			if (requests < 0) throw new IllegalArgumentException("Requests must not be negative");
+			if (weights.isEmpty()) {
+				weights.put(Operation.GET, 1);
+				weights.put(Operation.SET, 1);
+			}
+			return new LoadHarness(this);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package uk.co.datumedge.redislauncher;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a {@link LoadHarness} run. Latencies are measured from sending a pipelined batch until the reply to
+ * each of its commands arrived, and are in milliseconds.
+ */
+public final class LoadResult {
+	private final long operations;
+	private final long errors;
+	private final long elapsedNanos;
+	private final LatencySummary latency;
+
+	LoadResult(long operations, long errors, long elapsedNanos, LatencySummary latency) {
+		this.operations = operations;
+		this.errors = errors;
+		this.elapsedNanos = elapsedNanos;
+		this.latency = latency;
+	}
+
+	/**
+	 * Returns the number of commands which received a reply, including error replies.
+	 */
+	public long getOperations() {
+		return operations;
+	}
+
+	/**
+	 * Returns the number of commands to which the server replied with an error.
+	 */
+	public long getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Returns the time from sending the first command until the last reply arrived.
+	 */
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+	}
+
+	/**
+	 * Returns the number of operations completed per second over the whole run, or {@code 0} if no time elapsed.
+	 */
+	public double getOperationsPerSecond() {
+		return elapsedNanos == 0 ? 0 : operations * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+	}
+
+	/**
+	 * Returns the mean latency of a command.
+	 */
+	public double getMeanLatencyMillis() {
+		return latency.getMean();
+	}
+
+	/**
+	 * Returns the lowest latency of a command.
+	 */
+	public double getMinLatencyMillis() {
+		return latency.getMin();
+	}
+
+	/**
+	 * Returns the highest latency of a command.
+	 */
+	public double getMaxLatencyMillis() {
+		return latency.getMax();
+	}
+
+	/**
+	 * Returns the median latency of a command.
+	 */
+	public double getMedianLatencyMillis() {
+		return latency.getMedian();
+	}
+
+	/**
+	 * Returns the latency within which 90% of commands received their reply.
+	 */
+	public double getPercentile90LatencyMillis() {
+		return latency.getPercentile90();
+	}
+
+	/**
+	 * Returns the latency within which 99% of commands received their reply.
+	 */
+	public double getPercentile99LatencyMillis() {
+		return latency.getPercentile99();
+	}
+
+	/**
+	 * Returns the latency within which 99.9% of commands received their reply.
+	 */
+	public double getPercentile999LatencyMillis() {
+		return latency.getPercentile999();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d operations (%d errors) in %d ms, %.0f ops/s; latency ms: mean %.3f, min %.3f, " +
+				"median %.3f, 90%% %.3f, 99%% %.3f, 99.9%% %.3f, max %.3f", operations, errors, getElapsedMillis(),
+				getOperationsPerSecond(), latency.getMean(), latency.getMin(), latency.getMedian(),
+				latency.getPercentile90(), latency.getPercentile99(), latency.getPercentile999(), latency.getMax());
+	}
+}
@@ -0,0 +1,377 @@
+package uk.co.datumedge.redislauncher;
+
+import static uk.co.datumedge.redislauncher.Configuration.programmaticConfiguration;
+import static uk.co.datumedge.redislauncher.Execution.anExecution;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A redis cluster of several masters, each with the same number of replicas, running as local processes. Starting the
+ * cluster starts every node concurrently, divides the 16384 hash slots evenly between the masters, introduces the
+ * nodes to each other, attaches the replicas to their masters, and then blocks until every node reports
+ * {@code cluster_state:ok}.
+ *
+ * <pre>
+ * LocalRedisCluster cluster = aLocalRedisCluster().withMasters(3).withReplicasPerMaster(1).build();
+ * try {
+ * 	cluster.start();
+ * 	...
+ * } finally {
+ * 	cluster.stop();
+ * }
+ * </pre>
+ *
+ * Each node listens on its own port, and on that port plus 10000 for the cluster bus. Unless a first port is given,
+ * both ports of every node are reserved in the same way as an
+ * {@linkplain Configuration.Builder#withEphemeralPort() ephemeral port}, so clusters in concurrent test forks never
+ * collide. The nodes keep their cluster state in a temporary directory, which is cleared whenever the cluster is
+ * started, so every start creates a new cluster, and is deleted when the JVM exits.
+ */
+public final class LocalRedisCluster implements RedisServer {
+	/**
+	 * The number of hash slots in a redis cluster.
+	 */
+	public static final int SLOTS = 16384;
+
+	private static final String HOST = "127.0.0.1";
+	private static final long POLL_INTERVAL_MILLIS = 50;
+	private static final int CLUSTER_BUS_PORT_OFFSET = 10000;
+
+	private final List<LocalRedisServer> masters;
+	private final List<LocalRedisServer> replicas;
+	private final RedisServerGroup group;
+	private final Path directory;
+	private final long startupTimeoutMillis;
+
+	/**
+	 * Creates a {@code LocalRedisCluster} builder.
+	 *
+	 * @return a {@code LocalRedisCluster} builder instance
+	 */
+	public static Builder aLocalRedisCluster() {
+		return new Builder();
+	}
+
+	private LocalRedisCluster(List<LocalRedisServer> masters, List<LocalRedisServer> replicas, Path directory,
+			long startupTimeoutMillis) {
+		this.masters = Collections.unmodifiableList(masters);
+		this.replicas = Collections.unmodifiableList(replicas);
+		List<LocalRedisServer> nodes = new ArrayList<>(masters);
+		nodes.addAll(replicas);
+		this.group = new RedisServerGroup(nodes);
+		this.directory = directory;
+		this.startupTimeoutMillis = startupTimeoutMillis;
+	}
+
+	/**
+	 * Returns the master nodes. The first master serves the lowest slots.
+	 *
+	 * @return an unmodifiable list of servers
+	 */
+	public List<LocalRedisServer> masters() {
+		return masters;
+	}
+
+	/**
+	 * Returns the replica nodes. The replicas of the first master come first, followed by the replicas of the second
+	 * master, and so on.
+	 *
+	 * @return an unmodifiable list of servers
+	 */
+	public List<LocalRedisServer> replicas() {
+		return replicas;
+	}
+
+	/**
+	 * Returns every node in the cluster, masters first.
+	 *
+	 * @return an unmodifiable list of servers
+	 */
+	public List<LocalRedisServer> nodes() {
+		return group.servers();
+	}
+
+	/**
+	 * {@inheritDoc} If the cluster cannot be formed, every node is stopped again before the failure is thrown.
+	 *
+	 * @throws ServerNotReadyException
+	 *             if the cluster did not reach {@code cluster_state:ok} within the startup timeout
+	 */
+	@Override
+	public void start() throws IOException, InterruptedException {
+		deleteClusterState();
+		group.startAll();
+		try {
+			formCluster();
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			try {
+				group.stopAll();
+			} catch (IOException stopFailure) {
+				e.addSuppressed(stopFailure);
+			}
+			throw e;
+		}
+	}
+
+	private void deleteClusterState() throws IOException {
+		for (LocalRedisServer node : nodes()) {
+			Files.deleteIfExists(directory.resolve(clusterConfigFile(node.getPort())));
+		}
+	}
+
+	private void formCluster() throws IOException, InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(startupTimeoutMillis);
+		assignSlots();
+		LocalRedisServer first = nodes().get(0);
+		for (LocalRedisServer node : nodes().subList(1, nodes().size())) {
+			first.execute("CLUSTER", "MEET", HOST, Integer.toString(node.getPort()));
+		}
+		for (LocalRedisServer node : nodes()) {
+			awaitClusterInfo(node, "cluster_known_nodes", Integer.toString(nodes().size()), deadline);
+		}
+		attachReplicas();
+		for (LocalRedisServer node : nodes()) {
+			awaitClusterInfo(node, "cluster_state", "ok", deadline);
+		}
+	}
+
+	private void assignSlots() throws IOException {
+		for (int i = 0; i < masters.size(); i++) {
+			int firstSlot = i * SLOTS / masters.size();
+			int lastSlot = (i + 1) * SLOTS / masters.size() - 1;
+			String[] command = new String[lastSlot - firstSlot + 3];
+			command[0] = "CLUSTER";
+			command[1] = "ADDSLOTS";
+			for (int slot = firstSlot; slot <= lastSlot; slot++) {
+				command[slot - firstSlot + 2] = Integer.toString(slot);
+			}
+			masters.get(i).execute(command);
+		}
+	}
+
+	private void attachReplicas() throws IOException {
+		if (replicas.isEmpty()) return;
+		int replicasPerMaster = replicas.size() / masters.size();
+		for (int i = 0; i < replicas.size(); i++) {
+			String masterId = masters.get(i / replicasPerMaster).execute("CLUSTER", "MYID");
+			replicas.get(i).execute("CLUSTER", "REPLICATE", masterId);
+		}
+	}
+
+	private static void awaitClusterInfo(LocalRedisServer node, String field, String expected, long deadline)
+			throws IOException, InterruptedException {
+		String line = field + ":" + expected;
+		while (true) {
+			String info = node.execute("CLUSTER", "INFO");
+			for (String actual : info.split("\r\n")) {
+				if (actual.equals(line)) return;
+			}
+			if (System.nanoTime() - deadline > 0) {
+				throw new ServerNotReadyException("Cluster node on port " + node.getPort() + " did not report " + line +
+						" in time");
+			}
+			TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MILLIS);
+		}
+	}
+
+	/**
+	 * {@inheritDoc} Every node is stopped concurrently.
+	 */
+	@Override
+	public void stop() throws IOException, InterruptedException {
+		group.stopAll();
+	}
+
+	/**
+	 * {@inheritDoc} Every file the nodes left in the cluster's temporary directory is deleted too.
+	 */
+	@Override
+	public void destroy() {
+		group.destroy();
+		deleteFiles();
+	}
+
+	private void deleteFiles() {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				Files.deleteIfExists(file);
+			}
+		} catch (IOException e) {
+			// anything not deleted is left in the temporary directory
+		}
+	}
+
+	private static String clusterConfigFile(int port) {
+		return "nodes-" + port + ".conf";
+	}
+
+	/**
+	 * A builder of {@code LocalRedisCluster} instances.
+	 */
+	public static final class Builder {
+		private static final int DEFAULT_MASTERS = 3;
+		private static final int EPHEMERAL = -1;
+		private static final long DEFAULT_STARTUP_TIMEOUT_MILLIS = 30000;
+		private static final int MAXIMUM_PORT = 65535;
+
+		private int masters = DEFAULT_MASTERS;
+		private int replicasPerMaster;
+		private int firstPort = EPHEMERAL;
+		private long startupTimeoutMillis = DEFAULT_STARTUP_TIMEOUT_MILLIS;
+		private ConnectionProperties connectionProperties = ConnectionProperties.DEFAULT;
+		private final Map<String, String> properties = new HashMap<String, String>();
+
+		private Builder() { }
+
+		/**
+		 * Sets the number of master nodes.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withMasters(int masters) {
+			this.masters = masters;
+			return this;
+		}
+
+		/**
+		 * Sets the number of replica nodes attached to each master.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withReplicasPerMaster(int replicasPerMaster) {
+			this.replicasPerMaster = replicasPerMaster;
+			return this;
+		}
+
+		/**
+		 * Sets the port of the first master. Each further node uses the next port along, masters first. The ports are
+		 * not reserved, so clusters in concurrent test forks must be given ports that do not overlap.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withFirstPort(int firstPort) {
+			this.firstPort = firstPort;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum time to wait for the nodes to form a cluster, once every node has started.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withStartupTimeoutMillis(long startupTimeoutMillis) {
+			this.startupTimeoutMillis = startupTimeoutMillis;
+			return this;
+		}
+
+		/**
+		 * Adds a {@code redis.conf} property to the configuration of every node.
+		 *
+		 * @return the updated builder
+		 * @see Configuration.ProgrammaticBuilder#withProperty(String, String)
+		 */
+		public Builder withProperty(String key, String value) {
+			properties.put(key, value);
+			return this;
+		}
+
+		/**
+		 * Sets the {@code ConnectionProperties} used by every node.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withConnectionProperties(ConnectionProperties connectionProperties) {
+			this.connectionProperties = connectionProperties;
+			return this;
+		}
+
+		/**
+		 * Creates a {@code LocalRedisCluster} from the current builder. If not specified, the cluster has three
+		 * masters without replicas, and each node uses a free port whose cluster bus port is also free. Unless
+		 * overridden by properties, nodes never save snapshots.
+		 *
+		 * @return a {@code LocalRedisCluster} instance
+		 * @throws NullPointerException
+		 *             if the {@code redislauncher.command} system property does not exist
+		 * @throws IllegalArgumentException
+		 *             if there are no masters, a negative number of replicas, or a node's cluster bus port would be
+		 *             out of range
+		 * @throws UncheckedIOException
+		 *             if the directory for cluster state could not be created, or no first port was specified and
+		 *             free ports could not be reserved
+		 */
+		public LocalRedisCluster build() {
+			if (masters < 1) throw new IllegalArgumentException("A cluster needs at least one master");
+			if (replicasPerMaster < 0) throw new IllegalArgumentException("Replicas per master must not be negative");
+			int nodes = masters * (1 + replicasPerMaster);
+			if (firstPort != EPHEMERAL
+					&& (firstPort < 1 || firstPort + nodes - 1 + CLUSTER_BUS_PORT_OFFSET > MAXIMUM_PORT)) {
+				throw new IllegalArgumentException("Cluster bus ports must be no greater than " + MAXIMUM_PORT);
+			}
+
+			Path directory = createDirectory();
+			List<LocalRedisServer> masterNodes = new ArrayList<>(masters);
+			List<LocalRedisServer> replicaNodes = new ArrayList<>(nodes - masters);
+			for (int i = 0; i < nodes; i++) {
+				LocalRedisServer node = new LocalRedisServer(
+						anExecution().withConfiguration(configurationFor(portFor(i), directory)).build(),
+						connectionProperties,
+						new AlwaysDestroyLifecyclePolicy());
+				if (i < masters) {
+					masterNodes.add(node);
+				} else {
+					replicaNodes.add(node);
+				}
+			}
+			return new LocalRedisCluster(masterNodes, replicaNodes, directory, startupTimeoutMillis);
+		}
+
+		private int portFor(int index) {
+			if (firstPort != EPHEMERAL) return firstPort + index;
+			try {
+				return PortAllocator.allocateWithOffset(CLUSTER_BUS_PORT_OFFSET);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private Configuration configurationFor(int port, Path directory) {
+			// registered after the directory, so that they are deleted first when the JVM exits
+			directory.resolve(clusterConfigFile(port)).toFile().deleteOnExit();
+			directory.resolve("dump-" + port + ".rdb").toFile().deleteOnExit();
+			Configuration.ProgrammaticBuilder builder = programmaticConfiguration()
+					.withProperty("cluster-enabled", "yes")
+					.withProperty("cluster-config-file", clusterConfigFile(port))
+					.withProperty("dir", "\"" + directory + "\"")
+					.withProperty("dbfilename", "dump-" + port + ".rdb")
+					.withProperty("save", "\"\"")
+					.withProperty("appendonly", "no");
+			builder.withPort(port);
+			for (Entry<String, String> property : properties.entrySet()) {
+				builder.withProperty(property.getKey(), property.getValue());
+			}
+			return builder.build();
+		}
+
+		private static Path createDirectory() {
+			try {
+				Path directory = Files.createTempDirectory("redislauncher-cluster");
+				directory.toFile().deleteOnExit();
+				return directory;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
@@ -3,15 +3,18 @@ package uk.co.datumedge.redislauncher;
 import static uk.co.datumedge.redislauncher.Execution.anExecution;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.ConnectException;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.nio.charset.Charset;
+import java.net.SocketAddress;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import javax.management.openmbean.CompositeData;
+
 import org.apache.commons.exec.DefaultExecuteResultHandler;
 
 /**
@@ -28,19 +31,36 @@ import org.apache.commons.exec.DefaultExecuteResultHandler;
  * 	redisServer.stop();
  * }
  * </pre>
+ *
+ * Instances are safe for use by multiple threads. Several servers can be started concurrently with
+ * {@link #startAsync()}, or as a {@link RedisServerGroup}.
  */
 public final class LocalRedisServer implements RedisServer, LocalRedisServerMBean {
-	private static final long DEFAULT_SLEEP_BETWEEN_CONNECT_RETRIES_MILLIS = 100;
-	private static final long DEFAULT_SLEEP_BETWEEN_READINESS_RETRIES_MILLIS = 1000;
-	private static final byte[] PING_COMMAND = "*1\r\n$4\r\nPING\r\n".getBytes(Charset.forName("UTF-8"));
+	private static final long LOADING_WAIT_MILLIS = 1000;
+	private static final long DEFAULT_SLEEP_BETWEEN_BACKGROUND_SAVE_CHECKS_MILLIS = 10;
+	private static final String LOADING_ERROR = "LOADING";
 	private static final LifecyclePolicy DEFAULT_LIFECYCLE_POLICY = new KeepRunningOnErrorLifecyclePolicy();
 
+	private static final Executor ASYNC_EXECUTOR = Executors.newCachedThreadPool(
+			new DaemonThreadFactory("redis-server-lifecycle"));
+
 	private final LifecyclePolicy lifecyclePolicy;
 	private final ConnectionProperties connectionProperties;
 	private final Execution execution;
+	private final InfoSampler infoSampler;
+	private final ProcessSampler processSampler;
+	private final LatencyWatchdog watchdog;
 
-	private DefaultExecuteResultHandler executionResultHandler;
-	private boolean started;
+	private final Object lock = new Object();
+	private final Object controlLock = new Object();
+	private final LifecycleMetrics metrics = new LifecycleMetrics();
+	private volatile DefaultExecuteResultHandler executionResultHandler;
+	private volatile boolean started;
+	private volatile boolean exitExpected;
+	private volatile boolean restartPending;
+	private volatile long exitedAtNanos;
+	private RedisControlConnection controlConnection;
+	private volatile Checkpoint checkpoint;
 
 	/**
 	 * Creates a new server instance using the {@code redislauncher.command} system property. The property value must be
@@ -83,6 +103,18 @@ public final class LocalRedisServer implements RedisServer, LocalRedisServerMBea
 		this.execution = execution;
 		this.connectionProperties = connectionProperties;
 		this.lifecyclePolicy = lifecyclePolicy;
+		this.infoSampler = connectionProperties.infoSamplingIntervalMillis > 0
+				? new InfoSampler(execution.configuration.socketAddress(),
+						connectionProperties.infoSamplingIntervalMillis)
+				: null;
+		this.processSampler = connectionProperties.processSamplingIntervalMillis > 0
+				? new ProcessSampler(execution::pid, connectionProperties.processSamplingIntervalMillis)
+				: null;
+		this.watchdog = connectionProperties.watchdogIntervalMillis > 0
+				? new LatencyWatchdog(execution.configuration.socketAddress(),
+						connectionProperties.watchdogIntervalMillis, connectionProperties.unresponsiveThresholdMillis,
+						this::unresponsive)
+				: null;
 	}
 
 	/**
@@ -91,18 +123,26 @@ public final class LocalRedisServer implements RedisServer, LocalRedisServerMBea
 	 * There are three steps to server startup:
 	 * <ol>
 	 * <li>Execute the redis-server process</li>
-	 * <li>Connect to the server. Makes multiple connection attempts up to the maximum specified by
-	 * {@link ConnectionProperties#maximumConnectionAttempts}, waiting
-	 * 100 milliseconds between each attempt.</li>
-	 * <li>Wait for the server to become ready. Sends multiple PING commands up to the maximum specified by
-	 * {@link ConnectionProperties#maximumReadinessAttempts}</li>, waiting
-	 * 1000 milliseconds between each attempt.
+	 * <li>Connect to the server, over its {@linkplain Configuration#unixSocket unix socket} if it has one. Makes
+	 * multiple connection attempts up to the maximum specified by
+	 * {@link ConnectionProperties#maximumConnectionAttempts}, waiting between attempts as chosen by
+	 * {@link ConnectionProperties#connectionBackoff}.</li>
+	 * <li>Wait for the server to become ready. Makes the {@linkplain ConnectionProperties#readinessCheck readiness
+	 * check}, which sends PING by default, up to the maximum number of times specified by
+	 * {@link ConnectionProperties#maximumReadinessAttempts}, waiting between attempts as chosen by
+	 * {@link ConnectionProperties#readinessBackoff}.</li>
 	 * </ol>
 	 *
+	 * While waiting, the server's {@code stdout} is watched for the message logged once it is ready to accept
+	 * connections. When that message appears, the current wait is cut short and the next attempt is made immediately.
+	 * A server that replies {@code -LOADING} is still loading its dataset, which may take longer than the readiness
+	 * attempts allow, so those replies do not count as attempts until the ready message has been logged, and the time
+	 * spent loading is not counted as time elapsed by the readiness backoff.
+	 *
 	 * @throws ConnectException
 	 *             if the server process was started but no connection to it could be made
 	 * @throws ServerNotReadyException
-	 *             if the server process was started but did not respond positively to redis PING commands
+	 *             if the server process was started but did not pass the readiness check
 	 * @throws IOException
 	 *             if the server could not be started because the process could not be started
 	 * @throws InterruptedException
@@ -110,83 +150,440 @@ public final class LocalRedisServer implements RedisServer, LocalRedisServerMBea
 	 */
 	@Override
 	public void start() throws IOException, InterruptedException {
+		synchronized (lock) {
+			startLocked();
+		}
+	}
+
+	private void startLocked() throws IOException, InterruptedException {
 		if (started) {
 			return;
 		}
-		executionResultHandler = execution.start(lifecyclePolicy.getProcessDestroyer());
-		Socket socket = tryToConnect();
+		long startNanos = System.nanoTime();
+		exitExpected = false;
+		executionResultHandler = execution.start(lifecyclePolicy.getProcessDestroyer(), this::processExited);
+		ReadyMessageDetector readyMessageDetector = execution.readyMessageDetector();
+		RedisControlConnection connection = tryToConnect(readyMessageDetector);
+		metrics.firstConnectTime.recordNanosSince(startNanos);
+		metrics.forkTime.record(execution.launchedNanos() - startNanos, TimeUnit.NANOSECONDS);
 		started = true;
-		try {
-			waitForServerReadiness(socket);
-		} finally {
-			socket.close();
+		synchronized (controlLock) {
+			controlConnection = connection;
+			try {
+				waitForServerReadiness(connection, readyMessageDetector);
+			} catch (IOException e) {
+				closeControlConnection();
+				throw e;
+			}
 		}
+		metrics.readyTime.recordNanosSince(startNanos);
+		metrics.ready();
+		startMonitoring();
 	}
 
-	private Socket tryToConnect() throws IOException, InterruptedException {
-		for (int i = 0; i < connectionProperties.maximumConnectionAttempts; i++) {
-			Socket socket = new Socket();
+	private RedisControlConnection tryToConnect(ReadyMessageDetector readyMessageDetector)
+			throws IOException, InterruptedException {
+		long startNanos = System.nanoTime();
+		for (int i = 1; i <= connectionProperties.maximumConnectionAttempts; i++) {
 			try {
-				return connect(socket);
-			} catch (ConnectException e) {
-				socket.close();
-				TimeUnit.MILLISECONDS.sleep(DEFAULT_SLEEP_BETWEEN_CONNECT_RETRIES_MILLIS);
+				metrics.connectionAttempts.incrementAndGet();
+				return RedisControlConnection.open(execution.configuration.socketAddress());
 			} catch (IOException e) {
-				socket.close();
+				// a unix socket that has not been created yet is reported as a SocketException, not a ConnectException
+				if (i == connectionProperties.maximumConnectionAttempts) break;
+				long delay = connectionProperties.connectionBackoff.delayMillis(i, millisSince(startNanos));
+				if (delay == BackoffStrategy.STOP) break;
+				readyMessageDetector.pause(delay);
 			}
 		}
 
 		lifecyclePolicy.failedToStart(this);
-		throw new ConnectException("Couldn't connect after " +
-				(connectionProperties.maximumConnectionAttempts - 1) * DEFAULT_SLEEP_BETWEEN_CONNECT_RETRIES_MILLIS +
-				" milliseconds");
+		throw new ConnectException("Couldn't connect after " + millisSince(startNanos) + " milliseconds");
 	}
 
-	private void waitForServerReadiness(Socket socket) throws IOException, InterruptedException {
-		OutputStream output = socket.getOutputStream();
-		InputStream input = socket.getInputStream();
+	private static long millisSince(long startNanos) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+
+	private void waitForServerReadiness(RedisControlConnection connection, ReadyMessageDetector readyMessageDetector)
+			throws IOException, InterruptedException {
+		ReadinessCheck.Connection checkConnection = command -> execute(connection, command);
+		// moved forward by the time spent loading, which does not count as elapsed time
+		long startNanos = System.nanoTime();
 
-		for (int i = 0; i < connectionProperties.maximumReadinessAttempts; i++) {
-			output.write(PING_COMMAND);
-			output.flush();
-			if (new Reply(input).parse().equals("+PONG")) {
-				return;
+		for (int i = 1; i <= connectionProperties.maximumReadinessAttempts; ) {
+			metrics.readinessAttempts.incrementAndGet();
+			try {
+				if (connectionProperties.readinessCheck.isReady(checkConnection)) {
+					return;
+				}
+			} catch (ErrorReplyException e) {
+				if (isLoading(e) && !readyMessageDetector.isReady()) {
+					// loading a large dataset can outlast the readiness attempts, and the ready message is logged once
+					// it ends
+					long loadingNanos = System.nanoTime();
+					readyMessageDetector.awaitReady(LOADING_WAIT_MILLIS);
+					startNanos += System.nanoTime() - loadingNanos;
+					continue;
+				}
 			}
-			TimeUnit.MILLISECONDS.sleep(DEFAULT_SLEEP_BETWEEN_READINESS_RETRIES_MILLIS);
+			if (i == connectionProperties.maximumReadinessAttempts) break;
+			long delay = connectionProperties.readinessBackoff.delayMillis(i, millisSince(startNanos));
+			if (delay == BackoffStrategy.STOP) break;
+			readyMessageDetector.pause(delay);
+			i++;
 		}
 
 		lifecyclePolicy.failedToStart(this);
-		throw new ServerNotReadyException("Server was not ready to accept requests after " +
-				(connectionProperties.maximumReadinessAttempts - 1) * DEFAULT_SLEEP_BETWEEN_READINESS_RETRIES_MILLIS +
+		throw new ServerNotReadyException("Server was not ready to accept requests after " + millisSince(startNanos) +
 				" milliseconds");
 	}
 
+	private static boolean isLoading(ErrorReplyException e) {
+		return e.getMessage() != null && e.getMessage().startsWith(LOADING_ERROR);
+	}
+
+	/**
+	 * Starts the server without blocking the calling thread. The server is started as described by {@link #start()}.
+	 *
+	 * @return a future which completes when the server is ready to accept requests, or completes exceptionally with
+	 *         the exception that {@link #start()} would have thrown
+	 */
+	public CompletableFuture<Void> startAsync() {
+		return startAsync(ASYNC_EXECUTOR);
+	}
+
+	/**
+	 * Starts the server using the given {@code executor}. The server is started as described by {@link #start()}.
+	 *
+	 * @param executor
+	 *            the executor which runs the blocking start
+	 * @return a future which completes when the server is ready to accept requests, or completes exceptionally with
+	 *         the exception that {@link #start()} would have thrown
+	 */
+	public CompletableFuture<Void> startAsync(Executor executor) {
+		return runAsync(this::start, executor);
+	}
+
+	/**
+	 * Stops the server without blocking the calling thread. The server is stopped as described by {@link #stop()}.
+	 *
+	 * @return a future which completes when the server process has terminated, or completes exceptionally with the
+	 *         exception that {@link #stop()} would have thrown
+	 */
+	public CompletableFuture<Void> stopAsync() {
+		return runAsync(this::stop, ASYNC_EXECUTOR);
+	}
+
+	private static CompletableFuture<Void> runAsync(LifecycleOperation operation, Executor executor) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		executor.execute(() -> {
+			try {
+				operation.run();
+				future.complete(null);
+			} catch (IOException e) {
+				future.completeExceptionally(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				future.completeExceptionally(e);
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * {@inheritDoc} The server is stopped with {@link StopMode#DEFAULT}.
+	 */
 	@Override
 	public void stop() throws IOException, InterruptedException {
+		stop(StopMode.DEFAULT);
+	}
+
+	/**
+	 * Stops the server, blocking until it has terminated, and persisting its dataset as described by the
+	 * {@code stopMode}. Calling this method does nothing if the server is not running. The time from calling this
+	 * method until the process exited is published as {@linkplain LocalRedisServerMBean#getShutdownTime() shutdown
+	 * time}.
+	 *
+	 * <h6>Example</h6>
+	 * <pre>
+	 * server.stop(StopMode.NOSAVE);
+	 * </pre>
+	 *
+	 * @param stopMode
+	 *            how the server persists its dataset as it stops
+	 * @throws IOException
+	 *             if an error occurs when connecting to the server
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the process to terminate
+	 */
+	public void stop(StopMode stopMode) throws IOException, InterruptedException {
+		synchronized (lock) {
+			stopLocked(stopMode);
+		}
+	}
+
+	private void stopLocked(StopMode stopMode) throws IOException, InterruptedException {
+		restartPending = false;
 		if (!started) {
 			return;
 		}
-		Socket socket = new Socket();
+		exitExpected = true;
+		stopMonitoring();
+		long stopNanos = System.nanoTime();
 		try {
-			connect(socket);
-			OutputStream os = socket.getOutputStream();
-			os.write("*1\r\n$8\r\nSHUTDOWN\r\n".getBytes("UTF-8"));
-			os.flush();
+			sendShutdown(stopMode);
 		} catch (IOException e) {
 			lifecyclePolicy.failedToStop(this, e);
-		} finally {
-			socket.close();
 		}
 		waitForProcessShutdown();
+		if (executionResultHandler.hasResult()) metrics.shutdownTime.recordNanosSince(stopNanos);
 		execution.destroy();
 		started = false;
+		metrics.stopped();
+	}
+
+	/**
+	 * Sends SHUTDOWN over the control connection. The connection is checked with a PING first, because redis closes
+	 * the connection without replying to SHUTDOWN, and a write to a stale connection may appear to succeed. If the
+	 * PING fails, SHUTDOWN is sent over a new connection instead.
+	 */
+	private void sendShutdown(StopMode stopMode) throws IOException, InterruptedException {
+		synchronized (controlLock) {
+			try {
+				RedisControlConnection connection = controlConnection();
+				try {
+					connection.execute("PING");
+				} catch (IOException e) {
+					closeControlConnection();
+					connection = controlConnection();
+				}
+				if (stopMode == StopMode.BACKGROUND_SAVE) {
+					try {
+						backgroundSave(connection);
+					} finally {
+						// the server is shut down even if its dataset could not be saved, so the failure is only
+						// reported once, rather than again when the process does not exit
+						connection.append(stopMode.shutdownCommand).flush();
+					}
+				} else {
+					connection.append(stopMode.shutdownCommand).flush();
+				}
+			} finally {
+				closeControlConnection();
+			}
+		}
+	}
+
+	private void backgroundSave(RedisControlConnection connection) throws IOException, InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(connectionProperties.shutdownTimeoutMillis);
+		boolean requested = false;
+		while (true) {
+			String persistence = connection.execute("INFO", "persistence").contentAsString();
+			if (!persistence.contains("rdb_bgsave_in_progress:1")) {
+				if (requested) {
+					if (persistence.contains("rdb_last_bgsave_status:ok")) return;
+					throw new IOException("Background save failed");
+				}
+				// a save already in progress would make BGSAVE fail, so it is only sent once none is
+				connection.execute("BGSAVE");
+				requested = true;
+				continue;
+			}
+			if (System.nanoTime() - deadline > 0) {
+				throw new IOException("Background save did not complete after " +
+						connectionProperties.shutdownTimeoutMillis + " milliseconds");
+			}
+			TimeUnit.MILLISECONDS.sleep(DEFAULT_SLEEP_BETWEEN_BACKGROUND_SAVE_CHECKS_MILLIS);
+		}
+	}
+
+	/**
+	 * Sends a command to the server over its persistent control connection, and returns the reply. Simple strings,
+	 * bulk strings, doubles and big numbers are returned as their text, and integers as their decimal representation.
+	 * The elements of an aggregate reply are returned one per line.
+	 *
+	 * <h6>Example</h6>
+	 * <pre>
+	 * String info = server.execute(&quot;INFO&quot;, &quot;memory&quot;);
+	 * </pre>
+	 *
+	 * @param command
+	 *            the command name followed by its arguments
+	 * @return the reply, or {@code null} for a null reply
+	 * @throws ErrorReplyException
+	 *             if the server replied with an error
+	 * @throws IOException
+	 *             if the command could not be sent, or its reply could not be read
+	 * @throws IllegalStateException
+	 *             if the server has not been started
+	 */
+	public String execute(String... command) throws IOException {
+		return withControlConnection(connection -> execute(connection, command));
+	}
+
+	private static String execute(RedisControlConnection connection, String... command) throws IOException {
+		Reply reply = connection.execute(command);
+		if (reply.isNull()) return null;
+		if (!reply.type().isAggregate()) return asString(reply);
+		StringBuilder builder = new StringBuilder();
+		appendElements(reply, builder);
+		return builder.toString();
+	}
+
+	private static void appendElements(Reply reply, StringBuilder builder) throws IOException {
+		long elements = reply.type() == Reply.Type.MAP || reply.type() == Reply.Type.ATTRIBUTE
+				? reply.size() * 2 : reply.size();
+		for (long i = 0; i < elements; i++) {
+			reply.next();
+			if (reply.type().isAggregate()) {
+				appendElements(reply, builder);
+			} else {
+				if (builder.length() > 0) builder.append('\n');
+				builder.append(reply.isNull() ? "" : asString(reply));
+			}
+		}
+	}
+
+	private static String asString(Reply reply) {
+		return reply.type() == Reply.Type.INTEGER ? Long.toString(reply.integer()) : reply.contentAsString();
+	}
+
+	/**
+	 * Sends commands to the server over its persistent control connection as a pipeline, so that many commands cost
+	 * only a few round trips. This is useful for loading fixtures or applying configuration in bulk.
+	 *
+	 * <h6>Example</h6>
+	 * <pre>
+	 * server.executeAll(Arrays.asList(
+	 * 	new String[] {&quot;CONFIG&quot;, &quot;SET&quot;, &quot;maxmemory&quot;, &quot;100mb&quot;},
+	 * 	new String[] {&quot;SET&quot;, &quot;key&quot;, &quot;value&quot;}));
+	 * </pre>
+	 *
+	 * @param commands
+	 *            the commands, each one a command name followed by its arguments
+	 * @throws ErrorReplyException
+	 *             if the server replied to any command with an error. Every command is still sent.
+	 * @throws IOException
+	 *             if the commands could not be sent, or their replies could not be read
+	 * @throws IllegalStateException
+	 *             if the server has not been started
+	 */
+	public void executeAll(List<String[]> commands) throws IOException {
+		withControlConnection(connection -> {
+			connection.executeAll(commands);
+			return null;
+		});
+	}
+
+	/**
+	 * Captures the server's dataset, so that it can later be put back with {@link #restore()}. Every key in every
+	 * database is copied into this JVM's heap with {@code DUMP}, together with its remaining time to live. This
+	 * replaces any earlier checkpoint. Keys should not be modified while a checkpoint is taken.
+	 * <p>
+	 * A checkpoint survives the server being stopped and started again.
+	 *
+	 * <h6>Example</h6>
+	 * <pre>
+	 * server.start();
+	 * loadFixtures(server);
+	 * server.checkpoint();
+	 * ...
+	 * // between tests
+	 * server.restore();
+	 * </pre>
+	 *
+	 * @throws IOException
+	 *             if the dataset could not be read
+	 * @throws IllegalStateException
+	 *             if the server has not been started
+	 */
+	public void checkpoint() throws IOException {
+		checkpoint = withControlConnection(Checkpoint::capture);
+	}
+
+	/**
+	 * Replaces the server's dataset with the one captured by the last call to {@link #checkpoint()}. Every key is
+	 * deleted with {@code FLUSHALL}, then the captured keys are put back with {@code RESTORE}. This is much faster than
+	 * restarting the server and loading the dataset again.
+	 *
+	 * @throws IOException
+	 *             if the dataset could not be restored
+	 * @throws IllegalStateException
+	 *             if the server has not been started, or no checkpoint has been taken
+	 */
+	public void restore() throws IOException {
+		Checkpoint checkpoint = this.checkpoint;
+		if (checkpoint == null) throw new IllegalStateException("No checkpoint has been taken");
+		withControlConnection(connection -> {
+			checkpoint.restore(connection);
+			return null;
+		});
+	}
+
+	/**
+	 * Runs an operation on the persistent control connection. If the operation fails for any reason other than an
+	 * error reply, the connection may be part way through a reply and is closed, so that the next operation opens a
+	 * new one.
+	 */
+	private <T> T withControlConnection(ControlOperation<T> operation) throws IOException {
+		synchronized (controlLock) {
+			try {
+				return operation.run(controlConnection());
+			} catch (ErrorReplyException e) {
+				throw e;
+			} catch (IOException e) {
+				closeControlConnection();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Returns the persistent control connection, opening a new one if it has been closed. The caller must hold
+	 * {@code controlLock}.
+	 */
+	private RedisControlConnection controlConnection() throws IOException {
+		if (!started) throw new IllegalStateException("Server has not been started");
+		if (controlConnection == null || !controlConnection.isOpen()) {
+			controlConnection = RedisControlConnection.open(execution.configuration.socketAddress());
+		}
+		return controlConnection;
+	}
+
+	private void closeControlConnection() {
+		synchronized (controlLock) {
+			if (controlConnection == null) return;
+			try {
+				controlConnection.close();
+			} catch (IOException e) {
+				// nothing more can be done with a connection that failed to close
+			}
+			controlConnection = null;
+		}
 	}
 
-	private Socket connect(Socket socket) throws IOException {
-		socket.connect(new InetSocketAddress("localhost", execution.configuration.port));
-		return socket;
+	/**
+	 * Returns the port on which the redis server accepts connections.
+	 *
+	 * @return the server port
+	 */
+	public int getPort() {
+		return execution.configuration.port;
 	}
 
+	/**
+	 * Returns the path of the unix socket on which the redis server accepts connections.
+	 *
+	 * @return the unix socket path, or {@code null} if the server does not listen on a unix socket
+	 */
+	public Path getUnixSocket() {
+		return execution.configuration.unixSocket;
+	}
+
+
 	private void waitForProcessShutdown() throws IOException, InterruptedException {
 		try {
 			executionResultHandler.waitFor(connectionProperties.shutdownTimeoutMillis);
@@ -200,8 +597,217 @@ public final class LocalRedisServer implements RedisServer, LocalRedisServerMBea
 		}
 	}
 
+	@Override
+	public CompositeData getForkTime() {
+		return metrics.forkTime.summary().toCompositeData();
+	}
+
+	@Override
+	public CompositeData getFirstConnectTime() {
+		return metrics.firstConnectTime.summary().toCompositeData();
+	}
+
+	@Override
+	public CompositeData getReadyTime() {
+		return metrics.readyTime.summary().toCompositeData();
+	}
+
+	@Override
+	public CompositeData getShutdownTime() {
+		return metrics.shutdownTime.summary().toCompositeData();
+	}
+
+	@Override
+	public long getConnectionAttempts() {
+		return metrics.connectionAttempts.get();
+	}
+
+	@Override
+	public long getReadinessAttempts() {
+		return metrics.readinessAttempts.get();
+	}
+
+	@Override
+	public long getRestartCount() {
+		return metrics.restartCount();
+	}
+
+	@Override
+	public long getUnexpectedExitCount() {
+		return metrics.unexpectedExits.get();
+	}
+
+	@Override
+	public CompositeData getDowntime() {
+		return metrics.downtime.summary().toCompositeData();
+	}
+
+	@Override
+	public long getPid() {
+		return execution.pid();
+	}
+
+	@Override
+	public long getUptimeMillis() {
+		return metrics.uptimeMillis();
+	}
+
+	@Override
+	public CompositeData getProcessStatistics() {
+		return processStatistics().toCompositeData();
+	}
+
+	/**
+	 * Returns the resource usage of the server process when it was last sampled. Samples are only taken while the
+	 * server is running, and the last sample is kept once it stops.
+	 *
+	 * @return the last sample, or statistics which are all {@code -1} if sampling is disabled or no sample has been
+	 *         taken
+	 * @see ConnectionProperties.Builder#withProcessSamplingIntervalMillis(long)
+	 */
+	public ProcessStatistics processStatistics() {
+		return processSampler == null ? ProcessStatistics.UNKNOWN : processSampler.snapshot();
+	}
+
+	@Override
+	public long getPeakMemoryBytes() {
+		return execution.peakMemoryBytes();
+	}
+
+	@Override
+	public long getCpuTimeMillis() {
+		return execution.cpuTimeMillis();
+	}
+
+	@Override
+	public long getUsedMemory() {
+		return sampled(InfoSampler.Statistic.USED_MEMORY);
+	}
+
+	@Override
+	public long getInstantaneousOpsPerSec() {
+		return sampled(InfoSampler.Statistic.INSTANTANEOUS_OPS_PER_SEC);
+	}
+
+	@Override
+	public long getConnectedClients() {
+		return sampled(InfoSampler.Statistic.CONNECTED_CLIENTS);
+	}
+
+	@Override
+	public long getKeyspaceHits() {
+		return sampled(InfoSampler.Statistic.KEYSPACE_HITS);
+	}
+
+	@Override
+	public long getKeyspaceMisses() {
+		return sampled(InfoSampler.Statistic.KEYSPACE_MISSES);
+	}
+
+	@Override
+	public long getEvictedKeys() {
+		return sampled(InfoSampler.Statistic.EVICTED_KEYS);
+	}
+
+	@Override
+	public double getMemFragmentationRatio() {
+		if (infoSampler == null) return InfoSampler.UNKNOWN;
+		return infoSampler.getFractional(InfoSampler.Statistic.MEM_FRAGMENTATION_RATIO);
+	}
+
+	@Override
+	public CompositeData getPingLatency() {
+		return watchdog == null
+				? LatencySummary.EMPTY.toCompositeData()
+				: watchdog.roundTrips.summary().toCompositeData();
+	}
+
+	@Override
+	public long getUnresponsiveCount() {
+		return metrics.unresponsiveCount.get();
+	}
+
+	private long sampled(InfoSampler.Statistic statistic) {
+		return infoSampler == null ? InfoSampler.UNKNOWN : infoSampler.get(statistic);
+	}
+
+	/**
+	 * Returns the address on which the launcher connects to the server.
+	 */
+	SocketAddress socketAddress() {
+		return execution.configuration.socketAddress();
+	}
+
+	private void startMonitoring() {
+		if (infoSampler != null) infoSampler.start();
+		if (processSampler != null) processSampler.start();
+		if (watchdog != null) watchdog.start();
+	}
+
+	private void stopMonitoring() {
+		if (infoSampler != null) infoSampler.stop();
+		if (processSampler != null) processSampler.stop();
+		if (watchdog != null) watchdog.stop();
+	}
+
+	private void unresponsive(long latencyMillis) {
+		metrics.unresponsiveCount.incrementAndGet();
+		lifecyclePolicy.serverUnresponsive(this, latencyMillis);
+	}
+
+	/**
+	 * Called when the server process exits. An exit is unexpected if the server had started and was neither being
+	 * stopped nor destroyed.
+	 */
+	private void processExited(DefaultExecuteResultHandler handler, int exitValue) {
+		if (!started || exitExpected || handler != executionResultHandler) return;
+		exitedAtNanos = System.nanoTime();
+		restartPending = true;
+		metrics.unexpectedExits.incrementAndGet();
+		metrics.stopped();
+		stopMonitoring();
+		lifecyclePolicy.exitedUnexpectedly(this, exitValue);
+	}
+
+	/**
+	 * Starts the server again after its process exited unexpectedly. Does nothing if the server has since been stopped
+	 * or destroyed, or has already been restarted. The time from the exit until the server was ready again is recorded
+	 * as downtime.
+	 *
+	 * @return {@code true} if the server was restarted, or {@code false} if no restart was needed
+	 * @throws IOException
+	 *             if the server could not be started, as described by {@link #start()}. Another restart may be
+	 *             attempted.
+	 */
+	boolean restartAfterUnexpectedExit() throws IOException, InterruptedException {
+		synchronized (lock) {
+			if (!restartPending) return false;
+			closeControlConnection();
+			// not started, so that destroying the process left by a restart which was not ready in time is not an exit
+			started = false;
+			execution.destroy();
+			startLocked();
+			restartPending = false;
+			metrics.downtime.recordNanosSince(exitedAtNanos);
+			return true;
+		}
+	}
+
 	@Override
 	public void destroy() {
+		exitExpected = true;
+		restartPending = false;
+		stopMonitoring();
+		closeControlConnection();
 		execution.destroy();
+		metrics.stopped();
+	}
+
+	private interface LifecycleOperation {
+		void run() throws IOException, InterruptedException;
+	}
+
+	private interface ControlOperation<T> {
+		T run(RedisControlConnection connection) throws IOException;
 	}
 }
@@ -2,11 +2,151 @@ package uk.co.datumedge.redislauncher;
 
 import java.io.IOException;
 
+import javax.management.openmbean.CompositeData;
+
 /**
  * JMX MBean interface for a redis server. Instances should be registered with the {@code ObjectName}
  * <code>uk.co.datumedge.redislauncher:type=LocalRedisServer,name=<i>anyName</i></code>
+ * <p>
+ * Besides the lifecycle operations, the bean publishes where launch time goes. Each latency attribute is
+ * {@code CompositeData} with the items {@code count}, {@code mean}, {@code min}, {@code max}, {@code median},
+ * {@code percentile90}, {@code percentile99} and {@code percentile999}. Latencies are in milliseconds.
  */
 public interface LocalRedisServerMBean {
 	void start() throws IOException, InterruptedException;
 	void stop() throws IOException, InterruptedException;
+
+	/**
+	 * Returns the time from starting the server until its process had been launched.
+	 */
+	CompositeData getForkTime();
+
+	/**
+	 * Returns the time from starting the server until the first successful connection to it.
+	 */
+	CompositeData getFirstConnectTime();
+
+	/**
+	 * Returns the time from starting the server until it replied to PING, which is when {@code start()} returns.
+	 */
+	CompositeData getReadyTime();
+
+	/**
+	 * Returns the time from requesting shutdown until the server process exited.
+	 */
+	CompositeData getShutdownTime();
+
+	/**
+	 * Returns the round trip time of the PINGs sent by the latency watchdog. Nothing is recorded unless the watchdog is
+	 * enabled with {@link ConnectionProperties.Builder#withWatchdogIntervalMillis(long)}.
+	 */
+	CompositeData getPingLatency();
+
+	/**
+	 * Returns the number of watchdog PINGs which took longer than the unresponsive threshold.
+	 */
+	long getUnresponsiveCount();
+
+	/**
+	 * Returns the number of connection attempts made over all starts.
+	 */
+	long getConnectionAttempts();
+
+	/**
+	 * Returns the number of readiness checks made over all starts.
+	 */
+	long getReadinessAttempts();
+
+	/**
+	 * Returns the number of times the server has been started successfully after its first start.
+	 */
+	long getRestartCount();
+
+	/**
+	 * Returns the number of times the server process exited without being stopped or destroyed.
+	 */
+	long getUnexpectedExitCount();
+
+	/**
+	 * Returns the time from the server process exiting unexpectedly until its restart was ready, for each restart made
+	 * after an unexpected exit.
+	 *
+	 * @see SupervisingLifecyclePolicy
+	 */
+	CompositeData getDowntime();
+
+	/**
+	 * Returns the process ID of the server, or {@code -1} if it is not running.
+	 */
+	long getPid();
+
+	/**
+	 * Returns the time since the server last became ready, in milliseconds, or {@code 0} if it is not running.
+	 */
+	long getUptimeMillis();
+
+	/**
+	 * Returns the largest amount of memory used by the server, in bytes, or {@code -1} if it is not known. For a server
+	 * in a {@linkplain Execution.Builder#withCgroup(java.nio.file.Path) cgroup}, this is the peak memory usage of the
+	 * cgroup, including forked children, and its last value remains available once the server has stopped.
+	 * Otherwise it is the peak resident set size of the running server process.
+	 */
+	long getPeakMemoryBytes();
+
+	/**
+	 * Returns the CPU time used by the server, in milliseconds, or {@code -1} if it is not known. For a server in a
+	 * cgroup, this includes forked children, and its last value remains available once the server has stopped.
+	 */
+	long getCpuTimeMillis();
+
+	/**
+	 * Returns the resource usage of the server process from its last sample of {@code /proc}. The attribute is
+	 * {@code CompositeData} with the items {@code sampledAtMillis}, {@code residentSetBytes},
+	 * {@code peakResidentSetBytes}, {@code threads}, {@code voluntaryContextSwitches},
+	 * {@code involuntaryContextSwitches}, {@code minorPageFaults}, {@code majorPageFaults}, {@code userCpuTimeMillis},
+	 * {@code systemCpuTimeMillis}, {@code readBytes} and {@code writeBytes}. Nothing is sampled unless enabled with
+	 * {@link ConnectionProperties.Builder#withProcessSamplingIntervalMillis(long)}.
+	 *
+	 * @see ProcessStatistics
+	 */
+	CompositeData getProcessStatistics();
+
+	/**
+	 * Returns {@code used_memory} from the last {@code INFO} sample, or {@code -1} if none has been taken.
+	 *
+	 * @see ConnectionProperties#infoSamplingIntervalMillis
+	 */
+	long getUsedMemory();
+
+	/**
+	 * Returns {@code instantaneous_ops_per_sec} from the last {@code INFO} sample, or {@code -1} if none has been
+	 * taken.
+	 */
+	long getInstantaneousOpsPerSec();
+
+	/**
+	 * Returns {@code connected_clients} from the last {@code INFO} sample, or {@code -1} if none has been taken. The
+	 * count includes the launcher's own connections.
+	 */
+	long getConnectedClients();
+
+	/**
+	 * Returns {@code keyspace_hits} from the last {@code INFO} sample, or {@code -1} if none has been taken.
+	 */
+	long getKeyspaceHits();
+
+	/**
+	 * Returns {@code keyspace_misses} from the last {@code INFO} sample, or {@code -1} if none has been taken.
+	 */
+	long getKeyspaceMisses();
+
+	/**
+	 * Returns {@code evicted_keys} from the last {@code INFO} sample, or {@code -1} if none has been taken.
+	 */
+	long getEvictedKeys();
+
+	/**
+	 * Returns {@code mem_fragmentation_ratio} from the last {@code INFO} sample, or {@code -1} if none has been taken.
+	 */
+	double getMemFragmentationRatio();
 }
@@ -0,0 +1,97 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Allocates free ports for redis servers. A port is reserved by holding a lock on a file named after it in a directory
+ * shared by every JVM on the host, so that concurrent test forks never hand out the same port. Reservations last
+ * until the JVM exits.
+ */
+final class PortAllocator {
+	private static final Path LOCK_DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"), "redislauncher-ports");
+	private static final int MAXIMUM_ATTEMPTS = 100;
+	private static final int MAXIMUM_PORT = 65535;
+	private static final Map<Integer, FileLock> RESERVATIONS = new HashMap<>();
+
+	private PortAllocator() { }
+
+	static synchronized int allocate() throws IOException {
+		Files.createDirectories(LOCK_DIRECTORY);
+		for (int i = 0; i < MAXIMUM_ATTEMPTS; i++) {
+			int port = freePort();
+			if (reserve(port)) return port;
+		}
+		throw new IOException("Could not reserve a free port after " + MAXIMUM_ATTEMPTS + " attempts");
+	}
+
+	/**
+	 * Reserves a free port together with the port at the given offset above it, such as the cluster bus port of a
+	 * cluster node, which must also be free.
+	 *
+	 * @return the lower of the two ports
+	 */
+	static synchronized int allocateWithOffset(int offset) throws IOException {
+		Files.createDirectories(LOCK_DIRECTORY);
+		for (int i = 0; i < MAXIMUM_ATTEMPTS; i++) {
+			int port = freePort();
+			int other = port + offset;
+			if (other > MAXIMUM_PORT || !isFree(other) || !reserve(port)) continue;
+			if (reserve(other)) return port;
+			release(port);
+		}
+		throw new IOException("Could not reserve a pair of free ports after " + MAXIMUM_ATTEMPTS + " attempts");
+	}
+
+	private static boolean reserve(int port) throws IOException {
+		if (RESERVATIONS.containsKey(port)) return false;
+		FileLock lock = tryLock(port);
+		if (lock == null) return false;
+		RESERVATIONS.put(port, lock);
+		return true;
+	}
+
+	private static void release(int port) throws IOException {
+		RESERVATIONS.remove(port).channel().close();
+	}
+
+	private static int freePort() throws IOException {
+		ServerSocket socket = new ServerSocket(0);
+		try {
+			return socket.getLocalPort();
+		} finally {
+			socket.close();
+		}
+	}
+
+	private static boolean isFree(int port) {
+		try {
+			new ServerSocket(port).close();
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static FileLock tryLock(int port) throws IOException {
+		FileChannel channel = FileChannel.open(LOCK_DIRECTORY.resolve(port + ".lock"),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try {
+			FileLock lock = channel.tryLock();
+			if (lock == null) channel.close();
+			return lock;
+		} catch (OverlappingFileLockException e) {
+			channel.close();
+			return null;
+		}
+	}
+}
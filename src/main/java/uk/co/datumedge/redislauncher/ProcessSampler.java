@@ -0,0 +1,278 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Samples the resource usage of a server process from {@code /proc/<pid>/stat}, {@code status} and {@code io} in the
+ * background. The files are kept open between samples and re-read from the start into a reused buffer, where they are
+ * parsed in place, and the values are written into a fixed array, so sampling allocates nothing in the steady state.
+ * <p>
+ * The files are reopened whenever the server's process ID changes, such as when it is restarted. Statistics which
+ * cannot be read, for example because the JVM may not read another user's {@code io} file, are left unknown.
+ */
+final class ProcessSampler {
+	private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(1,
+			new DaemonThreadFactory("redis-process-sampler"));
+	private static final int BUFFER_CAPACITY = 8192;
+	static final long UNKNOWN = -1;
+
+	/**
+	 * CPU times in {@code stat} are in clock ticks of {@code USER_HZ}, which Linux fixes at 100 per second on every
+	 * architecture it supports.
+	 */
+	private static final long MILLIS_PER_CLOCK_TICK = 10;
+
+	/**
+	 * The {@code /proc/<pid>} files which are sampled.
+	 */
+	enum File {
+		STAT("stat"), STATUS("status"), IO("io");
+
+		final String name;
+
+		File(String name) {
+			this.name = name;
+		}
+	}
+
+	/**
+	 * The statistics taken from each sample. Statistics from {@code stat} are found by their position after the
+	 * process name; the others by the name at the start of their line.
+	 */
+	enum Statistic {
+		RESIDENT_SET_BYTES(File.STATUS, "VmRSS", 1024),
+		PEAK_RESIDENT_SET_BYTES(File.STATUS, "VmHWM", 1024),
+		THREADS(File.STATUS, "Threads", 1),
+		VOLUNTARY_CONTEXT_SWITCHES(File.STATUS, "voluntary_ctxt_switches", 1),
+		INVOLUNTARY_CONTEXT_SWITCHES(File.STATUS, "nonvoluntary_ctxt_switches", 1),
+		MINOR_PAGE_FAULTS(File.STAT, 7, 1),
+		MAJOR_PAGE_FAULTS(File.STAT, 9, 1),
+		USER_CPU_TIME_MILLIS(File.STAT, 11, MILLIS_PER_CLOCK_TICK),
+		SYSTEM_CPU_TIME_MILLIS(File.STAT, 12, MILLIS_PER_CLOCK_TICK),
+		READ_BYTES(File.IO, "read_bytes", 1),
+		WRITE_BYTES(File.IO, "write_bytes", 1);
+
+		final File file;
+		final byte[] name;
+		final int field;
+		final long multiplier;
+
+		Statistic(File file, String name, long multiplier) {
+			this.file = file;
+			this.name = name.getBytes(StandardCharsets.US_ASCII);
+			this.field = -1;
+			this.multiplier = multiplier;
+		}
+
+		Statistic(File file, int field, long multiplier) {
+			this.file = file;
+			this.name = null;
+			this.field = field;
+			this.multiplier = multiplier;
+		}
+	}
+
+	private static final Statistic[] STATISTICS = Statistic.values();
+	private static final File[] FILES = File.values();
+
+	private final LongSupplier pid;
+	private final long intervalMillis;
+	private final AtomicLongArray values = new AtomicLongArray(STATISTICS.length);
+	private volatile long sampledAtMillis;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_CAPACITY);
+	private final FileChannel[] channels = new FileChannel[FILES.length];
+	private long openPid = -1;
+	private ScheduledFuture<?> future;
+
+	/**
+	 * @param pid
+	 *            supplies the process ID of the server, or {@code -1} if it is not running
+	 */
+	ProcessSampler(LongSupplier pid, long intervalMillis) {
+		this.pid = pid;
+		this.intervalMillis = intervalMillis;
+		for (int i = 0; i < STATISTICS.length; i++) {
+			values.set(i, UNKNOWN);
+		}
+	}
+
+	synchronized void start() {
+		if (future != null) return;
+		future = SCHEDULER.scheduleWithFixedDelay(this::sample, 0, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops sampling, waiting for any sample in progress to finish. The last values sampled are kept.
+	 */
+	synchronized void stop() {
+		if (future != null) {
+			future.cancel(false);
+			future = null;
+		}
+		closeFiles();
+	}
+
+	synchronized void sample() {
+		if (future == null) return;
+		long pid = this.pid.getAsLong();
+		if (pid < 0) return;
+		if (pid != openPid) {
+			closeFiles();
+			openPid = pid;
+		}
+		boolean sampled = false;
+		for (File file : FILES) {
+			try {
+				read(file);
+				parse(file, buffer, values);
+				sampled = true;
+			} catch (IOException | RuntimeException e) {
+				// the process may have exited, or the file may be unreadable; the next sample tries again
+				closeFile(file);
+			}
+		}
+		if (sampled) sampledAtMillis = System.currentTimeMillis();
+	}
+
+	private void read(File file) throws IOException {
+		FileChannel channel = channels[file.ordinal()];
+		if (channel == null) {
+			channel = FileChannel.open(Paths.get("/proc", Long.toString(openPid), file.name));
+			channels[file.ordinal()] = channel;
+		}
+		buffer.clear();
+		long position = 0;
+		int read;
+		while (buffer.hasRemaining() && (read = channel.read(buffer, position)) > 0) {
+			position += read;
+		}
+		buffer.flip();
+	}
+
+	private void closeFiles() {
+		for (File file : FILES) {
+			closeFile(file);
+		}
+		openPid = -1;
+	}
+
+	private void closeFile(File file) {
+		FileChannel channel = channels[file.ordinal()];
+		if (channel == null) return;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// nothing more can be done with a file that failed to close
+		}
+		channels[file.ordinal()] = null;
+	}
+
+	/**
+	 * Takes a snapshot of the last values sampled.
+	 */
+	ProcessStatistics snapshot() {
+		long[] snapshot = new long[STATISTICS.length];
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = values.get(i);
+		}
+		return new ProcessStatistics(sampledAtMillis, snapshot);
+	}
+
+	/**
+	 * Parses the contents of a {@code /proc/<pid>} file, storing the value of each statistic it holds. Statistics
+	 * absent from the file keep their previous values.
+	 */
+	static void parse(File file, ByteBuffer contents, AtomicLongArray values) {
+		if (file == File.STAT) {
+			parseStat(contents, values);
+		} else {
+			parseLines(file, contents, values);
+		}
+	}
+
+	/**
+	 * Parses {@code stat}, whose fields are separated by spaces. The process name, in parentheses, may itself contain
+	 * spaces and parentheses, so fields are counted from the last closing parenthesis.
+	 */
+	private static void parseStat(ByteBuffer stat, AtomicLongArray values) {
+		int end = stat.limit();
+		int start = end - 1;
+		while (start >= stat.position() && stat.get(start) != ')') start--;
+		if (start < stat.position()) return;
+		int field = -1;
+		for (int i = start + 1; i < end; i++) {
+			if (stat.get(i) == ' ') {
+				field++;
+				int fieldEnd = i + 1;
+				while (fieldEnd < end && stat.get(fieldEnd) != ' ' && stat.get(fieldEnd) != '\n') fieldEnd++;
+				for (Statistic statistic : STATISTICS) {
+					if (statistic.file == File.STAT && statistic.field == field) {
+						store(statistic, parseLong(stat, i + 1, fieldEnd), values);
+					}
+				}
+			}
+		}
+	}
+
+	private static void parseLines(File file, ByteBuffer contents, AtomicLongArray values) {
+		int end = contents.limit();
+		int lineStart = contents.position();
+		while (lineStart < end) {
+			int lineEnd = lineStart;
+			while (lineEnd < end && contents.get(lineEnd) != '\n') lineEnd++;
+			parseLine(file, contents, lineStart, lineEnd, values);
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	private static void parseLine(File file, ByteBuffer contents, int start, int end, AtomicLongArray values) {
+		for (Statistic statistic : STATISTICS) {
+			if (statistic.file != file) continue;
+			int valueStart = start + statistic.name.length + 1;
+			if (valueStart > end || contents.get(valueStart - 1) != ':') continue;
+			if (!startsWith(contents, start, statistic.name)) continue;
+			while (valueStart < end && (contents.get(valueStart) == ' ' || contents.get(valueStart) == '\t')) {
+				valueStart++;
+			}
+			int valueEnd = valueStart;
+			while (valueEnd < end && contents.get(valueEnd) >= '0' && contents.get(valueEnd) <= '9') valueEnd++;
+			store(statistic, parseLong(contents, valueStart, valueEnd), values);
+			return;
+		}
+	}
+
+	private static void store(Statistic statistic, long value, AtomicLongArray values) {
+		if (value != Long.MIN_VALUE) values.set(statistic.ordinal(), value * statistic.multiplier);
+	}
+
+	private static boolean startsWith(ByteBuffer contents, int start, byte[] prefix) {
+		for (int i = 0; i < prefix.length; i++) {
+			if (contents.get(start + i) != prefix[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the value of a non-negative decimal integer, or {@link Long#MIN_VALUE} if it is malformed.
+	 */
+	private static long parseLong(ByteBuffer contents, int start, int end) {
+		if (start == end) return Long.MIN_VALUE;
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			byte b = contents.get(i);
+			if (b < '0' || b > '9') return Long.MIN_VALUE;
+			value = value * 10 + (b - '0');
+		}
+		return value;
+	}
+}
@@ -0,0 +1,190 @@
+package uk.co.datumedge.redislauncher;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+
+import uk.co.datumedge.redislauncher.ProcessSampler.Statistic;
+
+/**
+ * A snapshot of the resource usage of a server process, as last sampled from {@code /proc}. Counters are totals since
+ * the process started. Any statistic which has not been sampled is {@code -1}.
+ *
+ * @see ConnectionProperties.Builder#withProcessSamplingIntervalMillis(long)
+ */
+public final class ProcessStatistics {
+	static final ProcessStatistics UNKNOWN = new ProcessStatistics(0, unknownValues());
+
+	private static final String[] ITEMS = {
+			"sampledAtMillis", "residentSetBytes", "peakResidentSetBytes", "threads", "voluntaryContextSwitches",
+			"involuntaryContextSwitches", "minorPageFaults", "majorPageFaults", "userCpuTimeMillis",
+			"systemCpuTimeMillis", "readBytes", "writeBytes"};
+	private static final CompositeType COMPOSITE_TYPE = compositeType();
+
+	private final long sampledAtMillis;
+	private final long[] values;
+
+	ProcessStatistics(long sampledAtMillis, long[] values) {
+		this.sampledAtMillis = sampledAtMillis;
+		this.values = values;
+	}
+
+	private static long[] unknownValues() {
+		long[] values = new long[Statistic.values().length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = ProcessSampler.UNKNOWN;
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the time at which the statistics were sampled, in milliseconds since the epoch, or {@code 0} if they
+	 * have never been sampled.
+	 */
+	public long getSampledAtMillis() {
+		return sampledAtMillis;
+	}
+
+	/**
+	 * Returns the resident set size of the process, from {@code VmRSS}.
+	 */
+	public long getResidentSetBytes() {
+		return get(Statistic.RESIDENT_SET_BYTES);
+	}
+
+	/**
+	 * Returns the largest resident set size of the process, from {@code VmHWM}.
+	 */
+	public long getPeakResidentSetBytes() {
+		return get(Statistic.PEAK_RESIDENT_SET_BYTES);
+	}
+
+	/**
+	 * Returns the number of threads in the process, from {@code Threads} in {@code status}.
+	 */
+	public long getThreads() {
+		return get(Statistic.THREADS);
+	}
+
+	/**
+	 * Returns the number of times the process gave up a CPU because it had to wait, such as for I/O, from
+	 * {@code voluntary_ctxt_switches} in {@code status}.
+	 */
+	public long getVoluntaryContextSwitches() {
+		return get(Statistic.VOLUNTARY_CONTEXT_SWITCHES);
+	}
+
+	/**
+	 * Returns the number of times the process was preempted while it could still run, from
+	 * {@code nonvoluntary_ctxt_switches} in {@code status}. These rise when the process competes for its CPUs.
+	 */
+	public long getInvoluntaryContextSwitches() {
+		return get(Statistic.INVOLUNTARY_CONTEXT_SWITCHES);
+	}
+
+	/**
+	 * Returns the number of page faults which did not need to read from disk, from {@code minflt} in {@code stat}.
+	 * These include the copy-on-write faults taken while a forked child saves the dataset.
+	 */
+	public long getMinorPageFaults() {
+		return get(Statistic.MINOR_PAGE_FAULTS);
+	}
+
+	/**
+	 * Returns the number of page faults which had to read from disk, from {@code majflt} in {@code stat}.
+	 */
+	public long getMajorPageFaults() {
+		return get(Statistic.MAJOR_PAGE_FAULTS);
+	}
+
+	/**
+	 * Returns the CPU time the process has spent in user mode, from {@code utime} in {@code stat}. The value is read
+	 * in clock ticks and converted assuming {@code USER_HZ} is 100, as Linux fixes it on every architecture.
+	 */
+	public long getUserCpuTimeMillis() {
+		return get(Statistic.USER_CPU_TIME_MILLIS);
+	}
+
+	/**
+	 * Returns the CPU time the process has spent in kernel mode, from {@code stime} in {@code stat}. The value is read
+	 * in clock ticks and converted assuming {@code USER_HZ} is 100, as Linux fixes it on every architecture.
+	 */
+	public long getSystemCpuTimeMillis() {
+		return get(Statistic.SYSTEM_CPU_TIME_MILLIS);
+	}
+
+	/**
+	 * Returns the number of bytes the process caused to be read from storage, from {@code read_bytes} in {@code io}.
+	 */
+	public long getReadBytes() {
+		return get(Statistic.READ_BYTES);
+	}
+
+	/**
+	 * Returns the number of bytes the process caused to be written to storage, from {@code write_bytes} in
+	 * {@code io}.
+	 */
+	public long getWriteBytes() {
+		return get(Statistic.WRITE_BYTES);
+	}
+
+	private long get(Statistic statistic) {
+		return values[statistic.ordinal()];
+	}
+
+	/**
+	 * Converts the statistics to open data, so that any JMX client can read them without this class on its
+	 * classpath.
+	 */
+	CompositeData toCompositeData() {
+		Object[] items = new Object[ITEMS.length];
+		items[0] = sampledAtMillis;
+		for (int i = 0; i < values.length; i++) {
+			items[i + 1] = values[i];
+		}
+		try {
+			return new CompositeDataSupport(COMPOSITE_TYPE, ITEMS, items);
+		} catch (OpenDataException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static CompositeType compositeType() {
+		OpenType<?>[] types = new OpenType<?>[ITEMS.length];
+		for (int i = 0; i < types.length; i++) {
+			types[i] = SimpleType.LONG;
+		}
+		String[] descriptions = {
+				"Time of the sample in milliseconds since the epoch",
+				"Resident set size in bytes",
+				"Peak resident set size in bytes",
+				"Number of threads",
+				"Voluntary context switches",
+				"Involuntary context switches",
+				"Minor page faults",
+				"Major page faults",
+				"User CPU time in milliseconds",
+				"System CPU time in milliseconds",
+				"Bytes read from storage",
+				"Bytes written to storage"};
+		try {
+			return new CompositeType("ProcessStatistics", "Resource usage of a server process", ITEMS, descriptions,
+					types);
+		} catch (OpenDataException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder string = new StringBuilder();
+		for (int i = 0; i < ITEMS.length; i++) {
+			if (i > 0) string.append(' ');
+			string.append(ITEMS[i]).append('=').append(i == 0 ? sampledAtMillis : values[i - 1]);
+		}
+		return string.toString();
+	}
+}
@@ -4,16 +4,20 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import org.apache.commons.exec.CommandLine;
 
 final class ProgrammaticConfiguration extends Configuration {
+	private final InitialDataset initialDataset;
 	private final Map<String, String> properties;
 
-	ProgrammaticConfiguration(CommandLine commandLine, int port, Map<String, String> properties) {
-		super(commandLine, port);
+	ProgrammaticConfiguration(CommandLine commandLine, int port, Path unixSocket, InitialDataset initialDataset,
+			Map<String, String> properties) {
+		super(commandLine, port, unixSocket);
+		this.initialDataset = initialDataset;
 		this.properties = properties;
 	}
 
@@ -25,9 +29,26 @@ final class ProgrammaticConfiguration extends Configuration {
 	@Override
 	InputStream inputStream() {
 		StringBuilder builder = new StringBuilder("port " + port);
+		if (unixSocket != null) {
+			builder.append("\nunixsocket ").append(quote(unixSocket.toString())).append("\nunixsocketperm 700");
+		}
 		for (Entry<String, String> entry : properties.entrySet()) {
 			builder.append('\n').append(entry.getKey()).append(' ').append(entry.getValue());
 		}
+		if (initialDataset != null) {
+			// redis uses the last value given for a property, so these override any given as properties
+			builder.append("\ndir ").append(quote(initialDataset.workingDirectory.toString()))
+					.append("\ndbfilename ").append(quote(InitialDataset.FILENAME));
+		}
 		return new ByteArrayInputStream(builder.toString().getBytes(Charset.forName("UTF-8")));
 	}
+
+	@Override
+	void prepare() throws IOException {
+		if (initialDataset != null) initialDataset.place();
+	}
+
+	private static String quote(String value) {
+		return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
 }
@@ -0,0 +1,160 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A check that a redis server is ready to accept requests, made by {@link LocalRedisServer#start()} once it has
+ * connected to the server. The check is repeated until it passes, or until the readiness attempts allowed by
+ * {@link ConnectionProperties} run out, with the delays chosen by {@link ConnectionProperties#readinessBackoff}. A
+ * composite check is made as a whole in each attempt, so every part of it shares the same attempts and deadline.
+ * <p>
+ * A check that fails with an {@code ErrorReplyException} is treated as not ready, except that a {@code -LOADING}
+ * error means the server is still loading its dataset, which does not count as an attempt.
+ *
+ * <pre>
+ * ConnectionProperties connectionProperties = new ConnectionProperties.Builder()
+ * 	.withReadinessCheck(ReadinessCheck.ping().and(ReadinessCheck.loadingComplete()))
+ * 	.withReadinessBackoff(BackoffStrategy.withDeadline(30000, BackoffStrategy.exponential(1, 1000, 0.5)))
+ * 	.withMaximumReadinessAttempts(Integer.MAX_VALUE)
+ * 	.build();
+ * </pre>
+ */
+public interface ReadinessCheck {
+	/**
+	 * Checks once whether the server is ready.
+	 *
+	 * @param connection
+	 *            a connection to the server
+	 * @return {@code true} if the server is ready
+	 * @throws ErrorReplyException
+	 *             if the server replied with an error, which is treated as not ready
+	 * @throws IOException
+	 *             if the server could not be reached
+	 */
+	boolean isReady(Connection connection) throws IOException;
+
+	/**
+	 * Returns a check which passes only if both this check and {@code other} pass.
+	 */
+	default ReadinessCheck and(ReadinessCheck other) {
+		return allOf(this, other);
+	}
+
+	/**
+	 * Returns a check which passes if either this check or {@code other} passes.
+	 */
+	default ReadinessCheck or(ReadinessCheck other) {
+		return anyOf(this, other);
+	}
+
+	/**
+	 * Returns a check which passes if the server replies {@code PONG} to {@code PING}. This is the default check.
+	 */
+	static ReadinessCheck ping() {
+		return connection -> "PONG".equals(connection.execute("PING"));
+	}
+
+	/**
+	 * Returns a check which passes once {@code INFO persistence} reports {@code loading:0}, so that the server has
+	 * finished loading its dataset.
+	 */
+	static ReadinessCheck loadingComplete() {
+		return connection -> "0".equals(infoField(connection.execute("INFO", "persistence"), "loading"));
+	}
+
+	/**
+	 * Returns a check which passes if the server is a master, or is a replica whose link to its master is up, as
+	 * reported by {@code INFO replication}.
+	 */
+	static ReadinessCheck replicationLinkUp() {
+		return connection -> {
+			String replication = connection.execute("INFO", "replication");
+			return "master".equals(infoField(replication, "role"))
+					|| "up".equals(infoField(replication, "master_link_status"));
+		};
+	}
+
+	/**
+	 * Returns a check which passes once {@code CLUSTER INFO} reports {@code cluster_state:ok}.
+	 */
+	static ReadinessCheck clusterStateOk() {
+		return connection -> "ok".equals(infoField(connection.execute("CLUSTER", "INFO"), "cluster_state"));
+	}
+
+	/**
+	 * Returns a check which passes once {@code MODULE LIST} includes a module with the given name.
+	 *
+	 * @param name
+	 *            the name of the module, as reported by {@code MODULE LIST}
+	 */
+	static ReadinessCheck moduleLoaded(String name) {
+		return connection -> {
+			List<String> fields = Arrays.asList(connection.execute("MODULE", "LIST").split("\n"));
+			for (int i = 0; i + 1 < fields.size(); i++) {
+				if (fields.get(i).equals("name") && fields.get(i + 1).equals(name)) return true;
+			}
+			return false;
+		};
+	}
+
+	/**
+	 * Returns a check which passes only if every one of {@code checks} passes. The checks are made in order, and
+	 * stop at the first which does not pass.
+	 */
+	static ReadinessCheck allOf(ReadinessCheck... checks) {
+		return connection -> {
+			for (ReadinessCheck check : checks) {
+				if (!check.isReady(connection)) return false;
+			}
+			return true;
+		};
+	}
+
+	/**
+	 * Returns a check which passes if any one of {@code checks} passes. The checks are made in order, and stop at the
+	 * first which passes. If none passes and one of them failed with an {@code ErrorReplyException}, the first such
+	 * exception is thrown, so that a server which is still loading is recognised.
+	 */
+	static ReadinessCheck anyOf(ReadinessCheck... checks) {
+		return connection -> {
+			ErrorReplyException failure = null;
+			for (ReadinessCheck check : checks) {
+				try {
+					if (check.isReady(connection)) return true;
+				} catch (ErrorReplyException e) {
+					if (failure == null) failure = e;
+				}
+			}
+			if (failure != null) throw failure;
+			return false;
+		};
+	}
+
+	private static String infoField(String info, String name) {
+		String prefix = name + ":";
+		for (String line : info.split("\r\n")) {
+			if (line.startsWith(prefix)) return line.substring(prefix.length());
+		}
+		return null;
+	}
+
+	/**
+	 * A connection over which a {@code ReadinessCheck} sends commands.
+	 */
+	interface Connection {
+		/**
+		 * Sends a command and returns its reply, in the form returned by {@link LocalRedisServer#execute(String...)}.
+		 *
+		 * @param command
+		 *            the command name followed by its arguments
+		 * @return the reply, or {@code null} for a null reply
+		 * @throws ErrorReplyException
+		 *             if the server replied with an error
+		 * @throws IOException
+		 *             if the command could not be sent, or its reply could not be read
+		 */
+		String execute(String... command) throws IOException;
+	}
+}
@@ -0,0 +1,108 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@code OutputStream} that watches the {@code stdout} of a redis server process for the message logged once the
+ * server is ready to accept connections. All bytes are forwarded to a delegate stream, if one is given.
+ */
+final class ReadyMessageDetector extends OutputStream {
+	private static final byte[] READY_MESSAGE = "ready to accept connections".getBytes(Charset.forName("UTF-8"));
+	private static final int[] FAILURE = failureFunction(READY_MESSAGE);
+
+	private final OutputStream delegate;
+	private final CountDownLatch ready = new CountDownLatch(1);
+	private int matched;
+	private boolean woken;
+
+	ReadyMessageDetector(OutputStream delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		detect((byte) b);
+		if (delegate != null) delegate.write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		for (int i = off; i < off + len; i++) {
+			detect(b[i]);
+		}
+		if (delegate != null) delegate.write(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (delegate != null) delegate.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (delegate != null) delegate.close();
+	}
+
+	private void detect(byte b) {
+		if (ready.getCount() == 0) return;
+		byte lower = toLowerCase(b);
+		while (matched > 0 && READY_MESSAGE[matched] != lower) {
+			matched = FAILURE[matched - 1];
+		}
+		if (READY_MESSAGE[matched] == lower) matched++;
+		if (matched == READY_MESSAGE.length) ready.countDown();
+	}
+
+	/**
+	 * Returns {@code true} if the ready message has been seen.
+	 */
+	boolean isReady() {
+		return ready.getCount() == 0;
+	}
+
+	/**
+	 * Waits for up to {@code millis} milliseconds, returning as soon as the ready message has been seen.
+	 *
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	void awaitReady(long millis) throws InterruptedException {
+		ready.await(millis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Waits for up to {@code millis} milliseconds. The first time the ready message is seen, the wait returns early so
+	 * that the caller can retry straight away. Later waits always last the full duration, so a server that has logged
+	 * the ready message but still cannot be reached is not retried in a tight loop.
+	 *
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	void pause(long millis) throws InterruptedException {
+		if (woken) {
+			TimeUnit.MILLISECONDS.sleep(millis);
+		} else {
+			woken = ready.await(millis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private static byte toLowerCase(byte b) {
+		return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+	}
+
+	private static int[] failureFunction(byte[] pattern) {
+		int[] failure = new int[pattern.length];
+		for (int i = 1, k = 0; i < pattern.length; i++) {
+			while (k > 0 && pattern[i] != pattern[k]) {
+				k = failure[k - 1];
+			}
+			if (pattern[i] == pattern[k]) k++;
+			failure[i] = k;
+		}
+		return failure;
+	}
+}
@@ -0,0 +1,198 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A persistent connection used by the launcher to send administrative commands to a redis server. Commands are
+ * encoded into a reusable buffer by {@link #append(String...)} and are not sent until {@link #flush()}, so many
+ * commands can be pipelined in a single round trip. Replies are then read in order from {@link #reply()}.
+ * <p>
+ * Instances are not safe for use by multiple threads.
+ */
+final class RedisControlConnection implements Closeable {
+	private static final int DEFAULT_CAPACITY = 4096;
+	static final int PIPELINE_BATCH_SIZE = 1024;
+
+	private final SocketChannel channel;
+	private final Reply reply;
+	private ByteBuffer output = ByteBuffer.allocate(DEFAULT_CAPACITY);
+
+	RedisControlConnection(SocketChannel channel) {
+		this.channel = channel;
+		this.reply = new Reply(channel);
+	}
+
+	static RedisControlConnection open(SocketAddress address) throws IOException {
+		return new RedisControlConnection(SocketChannel.open(address));
+	}
+
+	/**
+	 * Encodes a command into the output buffer. The command is sent by the next call to {@link #flush()}.
+	 *
+	 * @return this connection
+	 */
+	RedisControlConnection append(String... command) {
+		appendHeader('*', command.length);
+		for (String argument : command) {
+			appendBulk(argument.getBytes(StandardCharsets.UTF_8));
+		}
+		return this;
+	}
+
+	/**
+	 * Encodes a command with binary arguments into the output buffer. The command is sent by the next call to
+	 * {@link #flush()}.
+	 *
+	 * @return this connection
+	 */
+	RedisControlConnection append(byte[]... command) {
+		appendHeader('*', command.length);
+		for (byte[] argument : command) {
+			appendBulk(argument);
+		}
+		return this;
+	}
+
+	private void appendBulk(byte[] argument) {
+		appendHeader('$', argument.length);
+		ensureCapacity(argument.length + 2);
+		output.put(argument).put((byte) '\r').put((byte) '\n');
+	}
+
+	private void appendHeader(char type, int length) {
+		ensureCapacity(13);
+		output.put((byte) type);
+		if (length == 0) {
+			output.put((byte) '0');
+		} else {
+			int divisor = 1;
+			while (divisor <= length / 10) divisor *= 10;
+			for (; divisor > 0; divisor /= 10) {
+				output.put((byte) ('0' + (length / divisor) % 10));
+			}
+		}
+		output.put((byte) '\r').put((byte) '\n');
+	}
+
+	private void ensureCapacity(int length) {
+		if (output.remaining() >= length) return;
+		ByteBuffer old = output;
+		output = ByteBuffer.allocate(Math.max(old.capacity() * 2, old.position() + length));
+		old.flip();
+		output.put(old);
+	}
+
+	/**
+	 * Sends every command appended since the last flush.
+	 *
+	 * @throws IOException
+	 *             if the commands could not be sent
+	 */
+	void flush() throws IOException {
+		output.flip();
+		try {
+			while (output.hasRemaining()) {
+				channel.write(output);
+			}
+		} finally {
+			output.clear();
+		}
+	}
+
+	/**
+	 * Returns the parser from which replies to sent commands are read, in the order in which the commands were sent.
+	 */
+	Reply reply() {
+		return reply;
+	}
+
+	/**
+	 * Sends a command and reads its reply. The elements of an aggregate reply are left for the caller to read.
+	 *
+	 * @return the parser, positioned at the reply
+	 * @throws ErrorReplyException
+	 *             if the server replied with an error
+	 * @throws IOException
+	 *             if the command could not be sent or its reply could not be read
+	 */
+	Reply execute(String... command) throws IOException {
+		append(command).flush();
+		return nextReply();
+	}
+
+	/**
+	 * Sends a pipeline of commands, then reads and discards every reply. Commands are flushed in batches of up to
+	 * 1024, so that a long pipeline cannot fill both the send and receive socket buffers and deadlock. All replies are
+	 * read even if some are errors, so that the connection remains usable.
+	 *
+	 * @throws ErrorReplyException
+	 *             if the server replied to any command with an error. The first error is reported.
+	 * @throws IOException
+	 *             if the commands could not be sent or their replies could not be read
+	 */
+	void executeAll(List<String[]> commands) throws IOException {
+		ErrorReplyException error = null;
+		for (int start = 0; start < commands.size(); start += PIPELINE_BATCH_SIZE) {
+			int end = Math.min(commands.size(), start + PIPELINE_BATCH_SIZE);
+			for (int i = start; i < end; i++) {
+				append(commands.get(i));
+			}
+			flush();
+			try {
+				awaitReplies(end - start);
+			} catch (ErrorReplyException e) {
+				if (error == null) error = e;
+			}
+		}
+		if (error != null) throw error;
+	}
+
+	/**
+	 * Reads and discards replies to the given number of commands.
+	 *
+	 * @throws ErrorReplyException
+	 *             if any reply was an error. The first error is reported once every reply has been read.
+	 * @throws IOException
+	 *             if the replies could not be read
+	 */
+	void awaitReplies(int count) throws IOException {
+		ErrorReplyException error = null;
+		for (int i = 0; i < count; i++) {
+			try {
+				nextReply().skipElements();
+			} catch (ErrorReplyException e) {
+				if (error == null) error = e;
+			}
+		}
+		if (error != null) throw error;
+	}
+
+	/**
+	 * Reads the reply to the oldest command that has not yet had its reply read.
+	 *
+	 * @return the parser, positioned at the reply
+	 * @throws ErrorReplyException
+	 *             if the server replied with an error
+	 * @throws IOException
+	 *             if the reply could not be read
+	 */
+	Reply nextReply() throws IOException {
+		if (reply.next().isError()) throw new ErrorReplyException(reply.contentAsString());
+		return reply;
+	}
+
+	boolean isOpen() {
+		return channel.isOpen();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
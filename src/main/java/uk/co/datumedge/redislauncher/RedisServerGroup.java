@@ -0,0 +1,144 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A group of redis servers which are started and stopped together. Every server in the group is started concurrently,
+ * so starting the group takes about as long as starting its slowest member.
+ *
+ * <pre>
+ * RedisServerGroup group = new RedisServerGroup(master, replica1, replica2);
+ * try {
+ * 	group.start();
+ * 	...
+ * } finally {
+ * 	group.stop();
+ * }
+ * </pre>
+ */
+public final class RedisServerGroup implements RedisServer {
+	private final List<LocalRedisServer> servers;
+
+	/**
+	 * Constructs a group of the given servers.
+	 *
+	 * @param servers
+	 *            the servers in the group
+	 */
+	public RedisServerGroup(LocalRedisServer... servers) {
+		this(Arrays.asList(servers));
+	}
+
+	/**
+	 * Constructs a group of the given servers.
+	 *
+	 * @param servers
+	 *            the servers in the group
+	 */
+	public RedisServerGroup(List<LocalRedisServer> servers) {
+		this.servers = Collections.unmodifiableList(new ArrayList<>(servers));
+	}
+
+	/**
+	 * Returns the servers in this group.
+	 *
+	 * @return an unmodifiable list of servers
+	 */
+	public List<LocalRedisServer> servers() {
+		return servers;
+	}
+
+	/**
+	 * {@inheritDoc} This implementation calls {@link #startAll()}.
+	 */
+	@Override
+	public void start() throws IOException, InterruptedException {
+		startAll();
+	}
+
+	/**
+	 * Starts every server in the group concurrently, blocking until all of them are ready to accept requests. If any
+	 * server fails to start, the servers which did start are stopped again before the failure is rethrown.
+	 *
+	 * @throws IOException
+	 *             if any server could not be started
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the servers to start
+	 */
+	public void startAll() throws IOException, InterruptedException {
+		List<CompletableFuture<Void>> futures = new ArrayList<>(servers.size());
+		for (LocalRedisServer server : servers) {
+			futures.add(server.startAsync());
+		}
+
+		IOException failure = awaitAll(futures);
+		if (failure != null) {
+			try {
+				stopAll();
+			} catch (IOException e) {
+				failure.addSuppressed(e);
+			}
+			throw failure;
+		}
+	}
+
+	/**
+	 * {@inheritDoc} This implementation calls {@link #stopAll()}.
+	 */
+	@Override
+	public void stop() throws IOException, InterruptedException {
+		stopAll();
+	}
+
+	/**
+	 * Stops every server in the group concurrently, blocking until all of their processes have terminated.
+	 *
+	 * @throws IOException
+	 *             if any server could not be stopped
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the servers to stop
+	 */
+	public void stopAll() throws IOException, InterruptedException {
+		List<CompletableFuture<Void>> futures = new ArrayList<>(servers.size());
+		for (LocalRedisServer server : servers) {
+			futures.add(server.stopAsync());
+		}
+
+		IOException failure = awaitAll(futures);
+		if (failure != null) throw failure;
+	}
+
+	private static IOException awaitAll(List<CompletableFuture<Void>> futures) throws InterruptedException {
+		IOException failure = null;
+		for (CompletableFuture<Void> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				IOException cause = asIOException(e.getCause());
+				if (failure == null) {
+					failure = cause;
+				} else {
+					failure.addSuppressed(cause);
+				}
+			}
+		}
+		return failure;
+	}
+
+	private static IOException asIOException(Throwable cause) {
+		return cause instanceof IOException ? (IOException) cause : new IOException(cause);
+	}
+
+	@Override
+	public void destroy() {
+		for (LocalRedisServer server : servers) {
+			server.destroy();
+		}
+	}
+}
@@ -0,0 +1,335 @@
+package uk.co.datumedge.redislauncher;
+
+import static uk.co.datumedge.redislauncher.Configuration.programmaticConfiguration;
+import static uk.co.datumedge.redislauncher.Execution.anExecution;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of redis servers which are started in the background, ready to be handed out to tests. Each server listens
+ * on its own port. A server is returned to the pool with {@link #release(LocalRedisServer)}, which empties it of all
+ * data so that the next borrower finds it clean.
+ *
+ * <pre>
+ * RedisServerPool pool = aRedisServerPool().withSize(4).build();
+ * try {
+ * 	LocalRedisServer server = pool.acquire();
+ * 	try {
+ * 		...
+ * 	} finally {
+ * 		pool.release(server);
+ * 	}
+ * } finally {
+ * 	pool.close();
+ * }
+ * </pre>
+ *
+ * Servers are destroyed when the JVM terminates, even if the pool was not closed.
+ */
+public final class RedisServerPool implements Closeable {
+	private final List<LocalRedisServer> servers;
+	private static final Slot CLOSED = new Slot(null, null);
+
+	private final BlockingQueue<Slot> idle = new LinkedBlockingQueue<Slot>();
+	private final Set<LocalRedisServer> acquired = Collections.newSetFromMap(
+			new ConcurrentHashMap<LocalRedisServer, Boolean>());
+	private final ExecutorService executor = Executors.newCachedThreadPool(
+			new DaemonThreadFactory("redis-server-pool"));
+	private volatile boolean closed;
+
+	/**
+	 * Creates a {@code RedisServerPool} builder.
+	 *
+	 * @return a {@code RedisServerPool} builder instance
+	 */
+	public static Builder aRedisServerPool() {
+		return new Builder();
+	}
+
+	private RedisServerPool(List<LocalRedisServer> servers) {
+		this.servers = servers;
+		for (LocalRedisServer server : servers) {
+			replenish(server);
+		}
+	}
+
+	/**
+	 * Takes a started server from the pool, blocking until one is available.
+	 *
+	 * @return a started redis server
+	 * @throws IOException
+	 *             if the server that became available had failed to start. Another attempt to start it is made in the
+	 *             background.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a server
+	 * @throws IllegalStateException
+	 *             if the pool has been closed, or is closed while waiting
+	 */
+	public LocalRedisServer acquire() throws IOException, InterruptedException {
+		checkNotClosed();
+		return borrow(idle.take());
+	}
+
+	/**
+	 * Takes a started server from the pool, blocking for up to the given time until one is available.
+	 *
+	 * @param timeout
+	 *            the maximum time to wait
+	 * @param unit
+	 *            the unit of the {@code timeout} argument
+	 * @return a started redis server, or {@code null} if none became available in time
+	 * @throws IOException
+	 *             if the server that became available had failed to start. Another attempt to start it is made in the
+	 *             background.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a server
+	 * @throws IllegalStateException
+	 *             if the pool has been closed, or is closed while waiting
+	 */
+	public LocalRedisServer acquire(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+		checkNotClosed();
+		Slot slot = idle.poll(timeout, unit);
+		return slot == null ? null : borrow(slot);
+	}
+
+	private LocalRedisServer borrow(Slot slot) throws IOException {
+		if (closed) {
+			// leave the slot for the next thread still waiting, so that it also finds the pool closed
+			idle.add(slot);
+			throw new IllegalStateException("Pool has been closed");
+		}
+		if (slot.failure != null) {
+			replenish(slot.server);
+			throw new IOException("Pooled redis server failed to start", slot.failure);
+		}
+		acquired.add(slot.server);
+		return slot.server;
+	}
+
+	/**
+	 * Returns a server to the pool. All of the server's data is deleted with {@code FLUSHALL}. If the server cannot be
+	 * flushed, it is restarted in the background.
+	 *
+	 * @param server
+	 *            a server previously taken from this pool
+	 * @throws IllegalArgumentException
+	 *             if the server does not belong to this pool
+	 * @throws IllegalStateException
+	 *             if the server is not currently acquired, such as when it has already been released
+	 */
+	public void release(LocalRedisServer server) {
+		if (!servers.contains(server)) throw new IllegalArgumentException("Server does not belong to this pool");
+		if (!acquired.remove(server)) throw new IllegalStateException("Server has not been acquired");
+		if (closed) return;
+		try {
+			server.execute("FLUSHALL");
+			idle.add(new Slot(server, null));
+		} catch (IOException | RuntimeException e) {
+			restart(server);
+		}
+	}
+
+	private void replenish(final LocalRedisServer server) {
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				start(server);
+			}
+		});
+	}
+
+	private void restart(final LocalRedisServer server) {
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					server.stop();
+				} catch (IOException e) {
+					// the lifecycle policy has already destroyed the process
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				start(server);
+			}
+		});
+	}
+
+	private void execute(Runnable task) {
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			// the pool was closed, which stops the server anyway
+		}
+	}
+
+	private void start(LocalRedisServer server) {
+		try {
+			server.start();
+			idle.add(new Slot(server, null));
+		} catch (IOException | RuntimeException e) {
+			idle.add(new Slot(server, e));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void checkNotClosed() {
+		if (closed) throw new IllegalStateException("Pool has been closed");
+	}
+
+	/**
+	 * Stops every server in the pool, including those which have been acquired but not released. Threads waiting to
+	 * acquire a server are woken with an {@code IllegalStateException}.
+	 *
+	 * @throws IOException
+	 *             if a server could not be stopped
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		idle.add(CLOSED);
+		executor.shutdownNow();
+		IOException failure = null;
+		for (LocalRedisServer server : servers) {
+			try {
+				server.stop();
+			} catch (IOException e) {
+				failure = e;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				server.destroy();
+			}
+		}
+		if (failure != null) throw failure;
+	}
+
+	private static final class Slot {
+		final LocalRedisServer server;
+		final Exception failure;
+
+		Slot(LocalRedisServer server, Exception failure) {
+			this.server = server;
+			this.failure = failure;
+		}
+	}
+
+	/**
+	 * A builder of {@code RedisServerPool} instances.
+	 */
+	public static final class Builder {
+		private static final int EPHEMERAL = -1;
+		private static final int DEFAULT_SIZE = 2;
+
+		private int size = DEFAULT_SIZE;
+		private int firstPort = EPHEMERAL;
+		private ConnectionProperties connectionProperties = ConnectionProperties.DEFAULT;
+		private final Map<String, String> properties = new HashMap<String, String>();
+
+		private Builder() { }
+
+		/**
+		 * Sets the number of servers kept in the pool.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withSize(int size) {
+			this.size = size;
+			return this;
+		}
+
+		/**
+		 * Sets the port of the first server in the pool. Each further server uses the next port along.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withFirstPort(int firstPort) {
+			this.firstPort = firstPort;
+			return this;
+		}
+
+		/**
+		 * Adds a {@code redis.conf} property to the configuration of every server in the pool.
+		 *
+		 * @return the updated builder
+		 * @see Configuration.ProgrammaticBuilder#withProperty(String, String)
+		 */
+		public Builder withProperty(String key, String value) {
+			properties.put(key, value);
+			return this;
+		}
+
+		/**
+		 * Sets the {@code ConnectionProperties} used by every server in the pool.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withConnectionProperties(ConnectionProperties connectionProperties) {
+			this.connectionProperties = connectionProperties;
+			return this;
+		}
+
+		/**
+		 * Creates a {@code RedisServerPool} from the current builder and starts its servers in the background. If no
+		 * size was specified, the pool holds two servers. If no first port was specified, each server uses an
+		 * {@linkplain Configuration.Builder#withEphemeralPort() ephemeral port}. Unless overridden by properties,
+		 * pooled servers never save snapshots, and each uses its own {@code dbfilename} so that no server loads
+		 * another's data.
+		 *
+		 * @return a {@code RedisServerPool} instance
+		 * @throws NullPointerException
+		 *             if the {@code redislauncher.command} system property does not exist
+		 * @throws IllegalArgumentException
+		 *             if a {@code port} property was given
+		 * @throws UncheckedIOException
+		 *             if no first port was specified and a free port could not be reserved
+		 */
+		public RedisServerPool build() {
+			List<LocalRedisServer> servers = new ArrayList<LocalRedisServer>(size);
+			for (int i = 0; i < size; i++) {
+				servers.add(new LocalRedisServer(
+						anExecution().withConfiguration(configurationFor(i)).build(),
+						connectionProperties,
+						new AlwaysDestroyLifecyclePolicy()));
+			}
+			return new RedisServerPool(Collections.unmodifiableList(servers));
+		}
+
+		private Configuration configurationFor(int index) {
+			int port = firstPort == EPHEMERAL ? allocatePort() : firstPort + index;
+			Configuration.ProgrammaticBuilder builder = programmaticConfiguration()
+					.withProperty("save", "\"\"")
+					.withProperty("dbfilename", "redis-server-pool-" + port + ".rdb");
+			builder.withPort(port);
+			for (Entry<String, String> property : properties.entrySet()) {
+				builder.withProperty(property.getKey(), property.getValue());
+			}
+			return builder.build();
+		}
+
+		private static int allocatePort() {
+			try {
+				return PortAllocator.allocate();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,306 @@
+package uk.co.datumedge.redislauncher;
+
+import static uk.co.datumedge.redislauncher.Configuration.programmaticConfiguration;
+import static uk.co.datumedge.redislauncher.Execution.anExecution;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A redis master with a number of replicas, running as local processes. Starting the server starts the master and
+ * every replica concurrently, then blocks until every replica's link to the master is up and it has caught up with
+ * the master's replication offset.
+ *
+ * <pre>
+ * ReplicatedRedisServer server = aReplicatedRedisServer().withReplicas(2).build();
+ * try {
+ * 	server.start();
+ * 	server.master().execute(&quot;SET&quot;, &quot;key&quot;, &quot;value&quot;);
+ * 	server.awaitReplication();
+ * 	...
+ * } finally {
+ * 	server.stop();
+ * }
+ * </pre>
+ */
+public final class ReplicatedRedisServer implements RedisServer {
+	private static final String HOST = "127.0.0.1";
+	private static final long POLL_INTERVAL_MILLIS = 10;
+
+	private final LocalRedisServer master;
+	private final List<LocalRedisServer> replicas;
+	private final RedisServerGroup group;
+	private final long syncTimeoutMillis;
+	private final Path directory;
+
+	/**
+	 * Creates a {@code ReplicatedRedisServer} builder.
+	 *
+	 * @return a {@code ReplicatedRedisServer} builder instance
+	 */
+	public static Builder aReplicatedRedisServer() {
+		return new Builder();
+	}
+
+	private ReplicatedRedisServer(LocalRedisServer master, List<LocalRedisServer> replicas, long syncTimeoutMillis,
+			Path directory) {
+		this.master = master;
+		this.replicas = Collections.unmodifiableList(replicas);
+		List<LocalRedisServer> servers = new ArrayList<>(replicas.size() + 1);
+		servers.add(master);
+		servers.addAll(replicas);
+		this.group = new RedisServerGroup(servers);
+		this.syncTimeoutMillis = syncTimeoutMillis;
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the master.
+	 */
+	public LocalRedisServer master() {
+		return master;
+	}
+
+	/**
+	 * Returns the replicas.
+	 *
+	 * @return an unmodifiable list of servers
+	 */
+	public List<LocalRedisServer> replicas() {
+		return replicas;
+	}
+
+	/**
+	 * {@inheritDoc} If the replicas do not synchronise with the master, every server is stopped again before the
+	 * failure is thrown.
+	 *
+	 * @throws ServerNotReadyException
+	 *             if the replicas had not synchronised with the master within the sync timeout
+	 */
+	@Override
+	public void start() throws IOException, InterruptedException {
+		group.startAll();
+		try {
+			awaitReplication();
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			try {
+				group.stopAll();
+			} catch (IOException stopFailure) {
+				e.addSuppressed(stopFailure);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Blocks until every replica's link to the master is up and the replica has processed everything the master had
+	 * written to its replication stream when this method was called. Call this after writing to the master to wait
+	 * for the writes to reach every replica.
+	 *
+	 * @throws ServerNotReadyException
+	 *             if the replicas had not caught up within the sync timeout
+	 * @throws IOException
+	 *             if the servers could not be queried
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public void awaitReplication() throws IOException, InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(syncTimeoutMillis);
+		long masterOffset = offset(master.execute("INFO", "replication"), "master_repl_offset");
+		for (LocalRedisServer replica : replicas) {
+			while (!isSynchronised(replica.execute("INFO", "replication"), masterOffset)) {
+				if (System.nanoTime() - deadline > 0) {
+					throw new ServerNotReadyException("Replica on port " + replica.getPort() +
+							" did not synchronise with master within " + syncTimeoutMillis + " milliseconds");
+				}
+				TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MILLIS);
+			}
+		}
+	}
+
+	private static boolean isSynchronised(String info, long masterOffset) {
+		return "up".equals(field(info, "master_link_status")) && offset(info, "slave_repl_offset") >= masterOffset;
+	}
+
+	private static long offset(String info, String name) {
+		String value = field(info, name);
+		return value == null ? -1 : Long.parseLong(value);
+	}
+
+	private static String field(String info, String name) {
+		String prefix = name + ":";
+		for (String line : info.split("\r\n")) {
+			if (line.startsWith(prefix)) return line.substring(prefix.length());
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc} The master and every replica are stopped concurrently.
+	 */
+	@Override
+	public void stop() throws IOException, InterruptedException {
+		group.stopAll();
+	}
+
+	/**
+	 * {@inheritDoc} Every file the servers left in their temporary directory is deleted too.
+	 */
+	@Override
+	public void destroy() {
+		group.destroy();
+		deleteFiles();
+	}
+
+	private void deleteFiles() {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				Files.deleteIfExists(file);
+			}
+		} catch (IOException e) {
+			// anything not deleted is left in the temporary directory
+		}
+	}
+
+	/**
+	 * A builder of {@code ReplicatedRedisServer} instances.
+	 */
+	public static final class Builder {
+		private static final int EPHEMERAL = -1;
+		private static final int DEFAULT_REPLICAS = 1;
+		private static final long DEFAULT_SYNC_TIMEOUT_MILLIS = 30000;
+
+		private int replicas = DEFAULT_REPLICAS;
+		private int firstPort = EPHEMERAL;
+		private long syncTimeoutMillis = DEFAULT_SYNC_TIMEOUT_MILLIS;
+		private ConnectionProperties connectionProperties = ConnectionProperties.DEFAULT;
+		private final Map<String, String> properties = new HashMap<String, String>();
+
+		private Builder() { }
+
+		/**
+		 * Sets the number of replicas.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withReplicas(int replicas) {
+			this.replicas = replicas;
+			return this;
+		}
+
+		/**
+		 * Sets the port of the master. Each replica uses the next port along.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withFirstPort(int firstPort) {
+			this.firstPort = firstPort;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum time to wait for the replicas to synchronise with the master.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withSyncTimeoutMillis(long syncTimeoutMillis) {
+			this.syncTimeoutMillis = syncTimeoutMillis;
+			return this;
+		}
+
+		/**
+		 * Adds a {@code redis.conf} property to the configuration of the master and every replica.
+		 *
+		 * @return the updated builder
+		 * @see Configuration.ProgrammaticBuilder#withProperty(String, String)
+		 */
+		public Builder withProperty(String key, String value) {
+			properties.put(key, value);
+			return this;
+		}
+
+		/**
+		 * Sets the {@code ConnectionProperties} used by the master and every replica.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withConnectionProperties(ConnectionProperties connectionProperties) {
+			this.connectionProperties = connectionProperties;
+			return this;
+		}
+
+		/**
+		 * Creates a {@code ReplicatedRedisServer} from the current builder. If not specified, there is one replica,
+		 * and every server uses an {@linkplain Configuration.Builder#withEphemeralPort() ephemeral port}. Unless
+		 * overridden by properties, the servers never save snapshots, and keep the snapshots transferred by a full
+		 * synchronisation in a temporary directory. Replicas are pointed at the master with the
+		 * {@code slaveof} property, which every redis version accepts.
+		 *
+		 * @return a {@code ReplicatedRedisServer} instance
+		 * @throws NullPointerException
+		 *             if the {@code redislauncher.command} system property does not exist
+		 * @throws IllegalArgumentException
+		 *             if the number of replicas is negative
+		 * @throws UncheckedIOException
+		 *             if no first port was specified and a free port could not be reserved, or the directory for
+		 *             snapshots could not be created
+		 */
+		public ReplicatedRedisServer build() {
+			if (replicas < 0) throw new IllegalArgumentException("Number of replicas must not be negative");
+			Path directory = createDirectory();
+			int masterPort = portFor(0);
+			LocalRedisServer master = newServer(masterPort, null, directory);
+			List<LocalRedisServer> replicaServers = new ArrayList<>(replicas);
+			for (int i = 1; i <= replicas; i++) {
+				replicaServers.add(newServer(portFor(i), HOST + " " + masterPort, directory));
+			}
+			return new ReplicatedRedisServer(master, replicaServers, syncTimeoutMillis, directory);
+		}
+
+		private int portFor(int index) {
+			if (firstPort != EPHEMERAL) return firstPort + index;
+			try {
+				return PortAllocator.allocate();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private LocalRedisServer newServer(int port, String master, Path directory) {
+			// registered after the directory, so that it is deleted first when the JVM exits
+			directory.resolve("replicated-" + port + ".rdb").toFile().deleteOnExit();
+			Configuration.ProgrammaticBuilder builder = programmaticConfiguration()
+					.withProperty("save", "\"\"")
+					.withProperty("appendonly", "no")
+					.withProperty("dir", "\"" + directory + "\"")
+					.withProperty("dbfilename", "replicated-" + port + ".rdb");
+			if (master != null) builder.withProperty("slaveof", master);
+			builder.withPort(port);
+			for (Entry<String, String> property : properties.entrySet()) {
+				builder.withProperty(property.getKey(), property.getValue());
+			}
+			return new LocalRedisServer(anExecution().withConfiguration(builder.build()).build(),
+					connectionProperties, new AlwaysDestroyLifecyclePolicy());
+		}
+
+		private static Path createDirectory() {
+			try {
+				Path directory = Files.createTempDirectory("redislauncher-replicated");
+				directory.toFile().deleteOnExit();
+				return directory;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
@@ -1,36 +1,284 @@
 package uk.co.datumedge.redislauncher;
 
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * A pull parser of redis replies in the RESP2 and RESP3 protocols. Replies are read from a channel into a buffer which
+ * is reused from one reply to the next, so parsing allocates nothing unless a reply is larger than any seen before.
+ * <p>
+ * Each call to {@link #next()} parses one reply. An aggregate reply such as an array is returned as a header carrying
+ * its {@linkplain #size() element count}, and its elements are returned by the following calls to {@code next()}. The
+ * contents of a reply stay valid until the next call to {@code next()}.
+ */
 final class Reply {
-	private final InputStream input;
+	private static final int DEFAULT_CAPACITY = 8192;
+	private static final byte CR = '\r';
+	private static final byte LF = '\n';
 
-	public Reply(InputStream input) {
-		this.input = input;
+	/**
+	 * The type of a reply, identified by its first byte.
+	 */
+	enum Type {
+		SIMPLE_STRING, ERROR, INTEGER, BULK_STRING, ARRAY,
+		NULL, BOOLEAN, DOUBLE, BIG_NUMBER, BULK_ERROR, VERBATIM_STRING, MAP, SET, ATTRIBUTE, PUSH;
+
+		boolean isAggregate() {
+			return this == ARRAY || this == MAP || this == SET || this == ATTRIBUTE || this == PUSH;
+		}
+
+		boolean isError() {
+			return this == ERROR || this == BULK_ERROR;
+		}
 	}
 
-	public String parse() throws IOException {
-		StringBuilder builder = new StringBuilder();
-		boolean seenCarriageReturn = false, seenNewline = false;
-		while (!seenCarriageReturn || !seenNewline) { // TODO: should we check for ordering of \r and \n?
-			int i = input.read();
-			if (i == -1) {
-				return builder.toString();
-			}
+	private final ReadableByteChannel channel;
+	private ByteBuffer buffer;
+	private ByteBuffer content;
+
+	private Type type;
+	private int replyStart;
+	private int headerLength;
+	private int contentOffset;
+	private int contentLength;
+	private long value;
+
+	Reply(ReadableByteChannel channel) {
+		this(channel, DEFAULT_CAPACITY);
+	}
+
+	Reply(ReadableByteChannel channel, int capacity) {
+		this.channel = channel;
+		allocate(capacity);
+		buffer.limit(0);
+	}
+
+	/**
+	 * Parses the next reply, blocking until it has been read in full. For an aggregate reply, only the header is read.
+	 *
+	 * @return the type of the reply
+	 * @throws EOFException
+	 *             if the channel reached end of stream before the reply was complete
+	 * @throws IOException
+	 *             if the reply could not be read or was malformed
+	 */
+	Type next() throws IOException {
+		replyStart = buffer.position();
+		headerLength = readLine();
+		type = typeOf(buffer.get(replyStart));
+		contentOffset = 1;
+		contentLength = headerLength - 1;
+		value = 0;
+		int replyLength = headerLength + 2;
+
+		switch (type) {
+		case INTEGER:
+		case ARRAY:
+		case MAP:
+		case SET:
+		case ATTRIBUTE:
+		case PUSH:
+			value = parseLong();
+			break;
+		case BULK_STRING:
+		case BULK_ERROR:
+		case VERBATIM_STRING:
+			value = parseLong();
+			if (value >= 0) replyLength = readBulk();
+			break;
+		default:
+		}
+		buffer.position(replyStart + replyLength);
+		return type;
+	}
+
+	private int readBulk() throws IOException {
+		if (value > Integer.MAX_VALUE - headerLength - 4) throw new IOException("Bulk reply too large: " + value);
+		contentOffset = headerLength + 2;
+		contentLength = (int) value;
+		int replyLength = contentOffset + contentLength + 2;
+		fill(replyLength);
+		int end = replyStart + contentOffset + contentLength;
+		if (buffer.get(end) != CR || buffer.get(end + 1) != LF) {
+			throw new IOException("Bulk reply was not terminated by CRLF");
+		}
+		return replyLength;
+	}
 
-			char c = (char) i;
-			switch (c) {
-			case '\r':
-				seenCarriageReturn = true;
-				break;
-			case '\n':
-				seenNewline = true;
-				break;
-			default:
-				builder.append(c);
+	/**
+	 * Finds the end of the reply's first line, reading more of the reply as needed.
+	 *
+	 * @return the length of the line, excluding its CRLF terminator
+	 */
+	private int readLine() throws IOException {
+		int scanned = 0;
+		while (true) {
+			int limit = buffer.limit();
+			for (int i = replyStart + scanned; i < limit - 1; i++) {
+				if (buffer.get(i) == CR && buffer.get(i + 1) == LF) return i - replyStart;
 			}
+			scanned = Math.max(0, limit - replyStart - 1);
+			fill(limit - replyStart + 1);
+		}
+	}
+
+	/**
+	 * Ensures that at least {@code length} bytes of the current reply are in the buffer. The reply is moved to the
+	 * start of the buffer, which grows if the reply does not fit.
+	 */
+	private void fill(int length) throws IOException {
+		if (buffer.limit() - replyStart >= length) return;
+		buffer.position(replyStart);
+		if (buffer.capacity() < length) {
+			ByteBuffer old = buffer;
+			allocate(Math.max(length, old.capacity() * 2));
+			buffer.put(old);
+		} else {
+			buffer.compact();
+		}
+		replyStart = 0;
+		while (buffer.position() < length) {
+			if (channel.read(buffer) == -1) throw new EOFException("End of stream reached before reply was complete");
+		}
+		buffer.flip();
+	}
+
+	private void allocate(int capacity) {
+		buffer = ByteBuffer.allocate(capacity);
+		content = buffer.duplicate();
+	}
+
+	/**
+	 * Returns the type of the current reply.
+	 */
+	Type type() {
+		return type;
+	}
+
+	/**
+	 * Returns the value of an integer reply, the length of a bulk reply, or the number of elements in an aggregate
+	 * reply. A map or attribute reply of {@code n} entries is followed by {@code 2n} elements. A null bulk string or
+	 * null array in RESP2 has a size of {@code -1}.
+	 */
+	long size() {
+		return value;
+	}
+
+	/**
+	 * Returns the value of an integer reply.
+	 */
+	long integer() {
+		return value;
+	}
+
+	/**
+	 * Returns {@code true} if the current reply is null, in either RESP2 or RESP3 form.
+	 */
+	boolean isNull() {
+		return type == Type.NULL || (value < 0 && (type == Type.BULK_STRING || type.isAggregate()));
+	}
+
+	/**
+	 * Returns {@code true} if the first line of the current reply, including its type byte but excluding the trailing
+	 * CRLF, is equal to {@code expected}. For example, {@code matches("+PONG")} is true for a PONG reply.
+	 */
+	boolean matches(byte[] expected) {
+		if (headerLength != expected.length) return false;
+		for (int i = 0; i < expected.length; i++) {
+			if (buffer.get(replyStart + i) != expected[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns {@code true} if the content of the current reply begins with {@code prefix}. For example,
+	 * {@code contentStartsWith("LOADING")} is true for a LOADING error.
+	 */
+	boolean contentStartsWith(byte[] prefix) {
+		if (contentLength < prefix.length) return false;
+		for (int i = 0; i < prefix.length; i++) {
+			if (buffer.get(replyStart + contentOffset + i) != prefix[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a view of the content of the current reply: the text of a simple string, error, double or big number,
+	 * or the data of a bulk reply. The view is shared, and is only valid until the next call to {@link #next()}.
+	 */
+	ByteBuffer content() {
+		content.limit(replyStart + contentOffset + contentLength).position(replyStart + contentOffset);
+		return content;
+	}
+
+	/**
+	 * Returns the content of the current reply as a newly allocated {@code String}.
+	 */
+	String contentAsString() {
+		return new String(buffer.array(), buffer.arrayOffset() + replyStart + contentOffset, contentLength,
+				StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the first line of the current reply as a newly allocated {@code String}, for use in error messages.
+	 */
+	@Override
+	public String toString() {
+		if (type == null) return "";
+		return new String(buffer.array(), buffer.arrayOffset() + replyStart, headerLength, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses and discards the current reply's elements, if it is an aggregate.
+	 *
+	 * @throws IOException
+	 *             if the elements could not be read
+	 */
+	void skipElements() throws IOException {
+		if (!type.isAggregate() || value <= 0) return;
+		long remaining = type == Type.MAP || type == Type.ATTRIBUTE ? value * 2 : value;
+		for (long i = 0; i < remaining; i++) {
+			next();
+			skipElements();
+		}
+	}
+
+	private long parseLong() throws IOException {
+		int start = replyStart + contentOffset;
+		int end = start + contentLength;
+		boolean negative = start < end && buffer.get(start) == '-';
+		if (negative) start++;
+		if (start == end) throw new IOException("Expected a number in reply: " + this);
+		long result = 0;
+		for (int i = start; i < end; i++) {
+			byte b = buffer.get(i);
+			if (b < '0' || b > '9') throw new IOException("Expected a number in reply: " + this);
+			result = result * 10 + (b - '0');
+		}
+		return negative ? -result : result;
+	}
+
+	private static Type typeOf(byte b) throws IOException {
+		switch (b) {
+		case '+': return Type.SIMPLE_STRING;
+		case '-': return Type.ERROR;
+		case ':': return Type.INTEGER;
+		case '$': return Type.BULK_STRING;
+		case '*': return Type.ARRAY;
+		case '_': return Type.NULL;
+		case '#': return Type.BOOLEAN;
+		case ',': return Type.DOUBLE;
+		case '(': return Type.BIG_NUMBER;
+		case '!': return Type.BULK_ERROR;
+		case '=': return Type.VERBATIM_STRING;
+		case '%': return Type.MAP;
+		case '~': return Type.SET;
+		case '|': return Type.ATTRIBUTE;
+		case '>': return Type.PUSH;
+		default: throw new IOException("Unknown reply type '" + (char) b + "'");
 		}
-		return builder.toString();
 	}
 }
@@ -0,0 +1,41 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.exec.CommandLine;
+
+/**
+ * The configuration of a {@code redis-sentinel} process monitoring a single master. Sentinel rewrites its
+ * configuration file as it learns about the replicas, the other sentinels and failovers, so the file is written out
+ * afresh before each launch and every start monitors the master it was configured with.
+ */
+final class SentinelConfiguration extends Configuration {
+	private final Path file;
+	private final String contents;
+
+	SentinelConfiguration(CommandLine commandLine, int port, Path directory, String masterName, int masterPort,
+			int quorum, long downAfterMillis, long failoverTimeoutMillis) {
+		super(commandLine, port, null);
+		this.file = directory.resolve("sentinel-" + port + ".conf");
+		this.contents = "port " + port +
+				"\ndir \"" + directory + "\"" +
+				"\nsentinel monitor " + masterName + " 127.0.0.1 " + masterPort + " " + quorum +
+				"\nsentinel down-after-milliseconds " + masterName + " " + downAfterMillis +
+				"\nsentinel failover-timeout " + masterName + " " + failoverTimeoutMillis +
+				"\n";
+	}
+
+	@Override
+	CommandLine commandLine() throws IOException {
+		return super.commandLine().addArgument(file.toString(), false).addArgument("--sentinel");
+	}
+
+	@Override
+	void prepare() throws IOException {
+		Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+		file.toFile().deleteOnExit();
+	}
+}
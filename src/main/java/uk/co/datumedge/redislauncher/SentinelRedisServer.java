@@ -0,0 +1,459 @@
+package uk.co.datumedge.redislauncher;
+
+import static uk.co.datumedge.redislauncher.Execution.anExecution;
+import static uk.co.datumedge.redislauncher.ReplicatedRedisServer.aReplicatedRedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A redis master and its replicas, monitored by a number of {@code redis-sentinel} processes, all running locally.
+ * Starting the server starts the master and replicas as a {@link ReplicatedRedisServer}, then starts the sentinels and
+ * blocks until every sentinel has discovered every replica and every other sentinel.
+ * <p>
+ * {@link #triggerFailover()} kills the master and measures how long the sentinels take to promote one of the replicas,
+ * which makes it possible to measure how a client behaves during a failover without a shared environment.
+ *
+ * <pre>
+ * SentinelRedisServer server = aSentinelRedisServer().withReplicas(2).withSentinels(3).build();
+ * try {
+ * 	server.start();
+ * 	...
+ * 	long failoverMillis = server.triggerFailover();
+ * 	...
+ * } finally {
+ * 	server.stop();
+ * }
+ * </pre>
+ *
+ * Sentinels are launched with {@code redis-server <file> --sentinel}, using the {@code redislauncher.command} system
+ * property. Each sentinel's configuration file is kept in a temporary directory, and is rewritten each time the
+ * sentinel starts.
+ */
+public final class SentinelRedisServer implements RedisServer {
+	private static final long POLL_INTERVAL_MILLIS = 10;
+
+	private final ReplicatedRedisServer replicated;
+	private final List<LocalRedisServer> sentinels;
+	private final RedisServerGroup sentinelGroup;
+	private final String masterName;
+	private final long startupTimeoutMillis;
+	private final long failoverDeadlineMillis;
+	private volatile LocalRedisServer master;
+
+	/**
+	 * Creates a {@code SentinelRedisServer} builder.
+	 *
+	 * @return a {@code SentinelRedisServer} builder instance
+	 */
+	public static Builder aSentinelRedisServer() {
+		return new Builder();
+	}
+
+	private SentinelRedisServer(ReplicatedRedisServer replicated, List<LocalRedisServer> sentinels, String masterName,
+			long startupTimeoutMillis, long failoverDeadlineMillis) {
+		this.replicated = replicated;
+		this.sentinels = Collections.unmodifiableList(sentinels);
+		this.sentinelGroup = new RedisServerGroup(sentinels);
+		this.masterName = masterName;
+		this.startupTimeoutMillis = startupTimeoutMillis;
+		this.failoverDeadlineMillis = failoverDeadlineMillis;
+		this.master = replicated.master();
+	}
+
+	/**
+	 * Returns the server which is currently the master. After {@link #triggerFailover()}, this is the promoted replica.
+	 */
+	public LocalRedisServer master() {
+		return master;
+	}
+
+	/**
+	 * Returns the servers which were replicas when the server was built. One of them becomes the master after
+	 * {@link #triggerFailover()}.
+	 *
+	 * @return an unmodifiable list of servers
+	 */
+	public List<LocalRedisServer> replicas() {
+		return replicated.replicas();
+	}
+
+	/**
+	 * Returns the sentinels.
+	 *
+	 * @return an unmodifiable list of servers
+	 */
+	public List<LocalRedisServer> sentinels() {
+		return sentinels;
+	}
+
+	/**
+	 * Returns the name under which the sentinels monitor the master.
+	 */
+	public String masterName() {
+		return masterName;
+	}
+
+	/**
+	 * {@inheritDoc} If the replicas do not synchronise with the master, or the sentinels do not discover each other,
+	 * every process is stopped again before the failure is thrown.
+	 *
+	 * @throws ServerNotReadyException
+	 *             if the replicas had not synchronised, or the sentinels had not discovered every replica and every
+	 *             other sentinel, within the startup timeout
+	 */
+	@Override
+	public void start() throws IOException, InterruptedException {
+		master = replicated.master();
+		replicated.start();
+		try {
+			sentinelGroup.startAll();
+			awaitSentinelDiscovery();
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			try {
+				stop();
+			} catch (IOException stopFailure) {
+				e.addSuppressed(stopFailure);
+			}
+			throw e;
+		}
+	}
+
+	private void awaitSentinelDiscovery() throws IOException, InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(startupTimeoutMillis);
+		String replicas = Integer.toString(replicated.replicas().size());
+		String otherSentinels = Integer.toString(sentinels.size() - 1);
+		for (LocalRedisServer sentinel : sentinels) {
+			while (true) {
+				Map<String, String> state = fields(sentinel.execute("SENTINEL", "MASTER", masterName));
+				if (replicas.equals(state.get("num-slaves"))
+						&& otherSentinels.equals(state.get("num-other-sentinels"))) {
+					break;
+				}
+				if (System.nanoTime() - deadline > 0) {
+					throw new ServerNotReadyException("Sentinel on port " + sentinel.getPort() +
+							" did not discover every replica and sentinel within " + startupTimeoutMillis +
+							" milliseconds");
+				}
+				TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MILLIS);
+			}
+		}
+	}
+
+	private static Map<String, String> fields(String flattened) {
+		String[] items = flattened.split("\n");
+		Map<String, String> fields = new HashMap<>();
+		for (int i = 0; i + 1 < items.length; i += 2) {
+			fields.put(items[i], items[i + 1]);
+		}
+		return fields;
+	}
+
+	/**
+	 * Kills the current master with {@link LocalRedisServer#destroy()}, then blocks until every sentinel reports that
+	 * one of the replicas has been promoted in its place. The time taken includes the sentinels' down-after period,
+	 * during which they wait before treating the master as failed. Before returning, this method also waits for the
+	 * other replicas to follow the promoted master, but that time is not included in the result.
+	 *
+	 * @return the time in milliseconds from killing the master until every sentinel reported the promoted replica
+	 * @throws ServerNotReadyException
+	 *             if the sentinels did not agree on a promoted replica within the down-after period plus the failover
+	 *             timeout
+	 * @throws IOException
+	 *             if the sentinels could not be queried
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public long triggerFailover() throws IOException, InterruptedException {
+		LocalRedisServer failed = master;
+		String failedPort = Integer.toString(failed.getPort());
+		long startNanos = System.nanoTime();
+		long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(failoverDeadlineMillis);
+		failed.destroy();
+
+		String promotedPort = null;
+		for (LocalRedisServer sentinel : sentinels) {
+			while (true) {
+				String address = sentinel.execute("SENTINEL", "GET-MASTER-ADDR-BY-NAME", masterName);
+				String port = address.substring(address.indexOf('\n') + 1);
+				if (!port.equals(failedPort) && (promotedPort == null || port.equals(promotedPort))) {
+					promotedPort = port;
+					break;
+				}
+				if (System.nanoTime() - deadline > 0) {
+					throw new ServerNotReadyException("Sentinel on port " + sentinel.getPort() +
+							" did not report a promoted replica within " + failoverDeadlineMillis + " milliseconds");
+				}
+				TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MILLIS);
+			}
+		}
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+		for (LocalRedisServer replica : replicated.replicas()) {
+			if (Integer.toString(replica.getPort()).equals(promotedPort)) master = replica;
+		}
+		awaitReconfiguration(failed, deadline);
+		return elapsedMillis;
+	}
+
+	/**
+	 * Waits for the promoted replica to report itself as master, and for the other replicas to follow it. Sentinel
+	 * kills the client connections of every server it reconfigures, so a failed query is retried on a new connection.
+	 */
+	private void awaitReconfiguration(LocalRedisServer failed, long deadline) throws IOException, InterruptedException {
+		LocalRedisServer master = this.master;
+		awaitReplicationInfo(master, deadline, "role:master");
+		for (LocalRedisServer replica : replicated.replicas()) {
+			if (replica == master || replica == failed) continue;
+			awaitReplicationInfo(replica, deadline, "master_port:" + master.getPort(), "master_link_status:up");
+		}
+	}
+
+	private static void awaitReplicationInfo(LocalRedisServer server, long deadline, String... lines)
+			throws IOException, InterruptedException {
+		while (true) {
+			try {
+				if (containsAll(server.execute("INFO", "replication"), lines)) return;
+			} catch (IOException e) {
+				if (System.nanoTime() - deadline > 0) throw e;
+			}
+			if (System.nanoTime() - deadline > 0) {
+				throw new ServerNotReadyException("Server on port " + server.getPort() +
+						" was not reconfigured by the sentinels in time");
+			}
+			TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MILLIS);
+		}
+	}
+
+	private static boolean containsAll(String info, String... lines) {
+		List<String> actual = Arrays.asList(info.split("\r\n"));
+		for (String line : lines) {
+			if (!actual.contains(line)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc} The sentinels are stopped first, so that they do not react to the master stopping, followed by the
+	 * master and replicas. A master killed by {@link #triggerFailover()} is not an error.
+	 */
+	@Override
+	public void stop() throws IOException, InterruptedException {
+		try {
+			sentinelGroup.stopAll();
+		} finally {
+			replicated.stop();
+		}
+	}
+
+	@Override
+	public void destroy() {
+		sentinelGroup.destroy();
+		replicated.destroy();
+	}
+
+	/**
+	 * A builder of {@code SentinelRedisServer} instances.
+	 */
+	public static final class Builder {
+		private static final int EPHEMERAL = -1;
+		private static final int DEFAULT_REPLICAS = 1;
+		private static final int DEFAULT_SENTINELS = 3;
+		private static final String DEFAULT_MASTER_NAME = "mymaster";
+		private static final long DEFAULT_DOWN_AFTER_MILLIS = 1000;
+		private static final long DEFAULT_FAILOVER_TIMEOUT_MILLIS = 10000;
+		private static final long DEFAULT_STARTUP_TIMEOUT_MILLIS = 30000;
+
+		private int replicas = DEFAULT_REPLICAS;
+		private int sentinels = DEFAULT_SENTINELS;
+		private int quorum = EPHEMERAL;
+		private int firstPort = EPHEMERAL;
+		private String masterName = DEFAULT_MASTER_NAME;
+		private long downAfterMillis = DEFAULT_DOWN_AFTER_MILLIS;
+		private long failoverTimeoutMillis = DEFAULT_FAILOVER_TIMEOUT_MILLIS;
+		private long startupTimeoutMillis = DEFAULT_STARTUP_TIMEOUT_MILLIS;
+		private ConnectionProperties connectionProperties = ConnectionProperties.DEFAULT;
+		private final Map<String, String> properties = new HashMap<String, String>();
+
+		private Builder() { }
+
+		/**
+		 * Sets the number of replicas.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withReplicas(int replicas) {
+			this.replicas = replicas;
+			return this;
+		}
+
+		/**
+		 * Sets the number of sentinels.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withSentinels(int sentinels) {
+			this.sentinels = sentinels;
+			return this;
+		}
+
+		/**
+		 * Sets the number of sentinels which must agree that the master has failed before a failover starts.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withQuorum(int quorum) {
+			this.quorum = quorum;
+			return this;
+		}
+
+		/**
+		 * Sets the port of the master. Each replica uses the next port along, followed by each sentinel.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withFirstPort(int firstPort) {
+			this.firstPort = firstPort;
+			return this;
+		}
+
+		/**
+		 * Sets the name under which the sentinels monitor the master.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withMasterName(String masterName) {
+			this.masterName = masterName;
+			return this;
+		}
+
+		/**
+		 * Sets the sentinels' {@code down-after-milliseconds}, the time for which the master must be unreachable before
+		 * a sentinel considers it failed.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withDownAfterMillis(long downAfterMillis) {
+			this.downAfterMillis = downAfterMillis;
+			return this;
+		}
+
+		/**
+		 * Sets the sentinels' {@code failover-timeout}.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withFailoverTimeoutMillis(long failoverTimeoutMillis) {
+			this.failoverTimeoutMillis = failoverTimeoutMillis;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum time to wait for the replicas to synchronise with the master, and for the sentinels to
+		 * discover each other.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withStartupTimeoutMillis(long startupTimeoutMillis) {
+			this.startupTimeoutMillis = startupTimeoutMillis;
+			return this;
+		}
+
+		/**
+		 * Adds a {@code redis.conf} property to the configuration of the master and every replica.
+		 *
+		 * @return the updated builder
+		 * @see Configuration.ProgrammaticBuilder#withProperty(String, String)
+		 */
+		public Builder withProperty(String key, String value) {
+			properties.put(key, value);
+			return this;
+		}
+
+		/**
+		 * Sets the {@code ConnectionProperties} used by the master, every replica and every sentinel.
+		 *
+		 * @return the updated builder
+		 */
+		public Builder withConnectionProperties(ConnectionProperties connectionProperties) {
+			this.connectionProperties = connectionProperties;
+			return this;
+		}
+
+		/**
+		 * Creates a {@code SentinelRedisServer} from the current builder. If not specified, there is one replica and
+		 * three sentinels, the quorum is a majority of the sentinels, and every process uses an
+		 * {@linkplain Configuration.Builder#withEphemeralPort() ephemeral port}. The sentinels consider the master
+		 * failed after one second, rather than redis' default of thirty, and have a failover timeout of ten seconds.
+		 *
+		 * @return a {@code SentinelRedisServer} instance
+		 * @throws NullPointerException
+		 *             if the {@code redislauncher.command} system property does not exist
+		 * @throws IllegalArgumentException
+		 *             if there are no replicas, no sentinels, or the quorum is not between one and the number of
+		 *             sentinels
+		 * @throws UncheckedIOException
+		 *             if no first port was specified and a free port could not be reserved, or the directory for
+		 *             sentinel configuration files could not be created
+		 */
+		public SentinelRedisServer build() {
+			if (replicas < 1) throw new IllegalArgumentException("A failover needs at least one replica");
+			if (sentinels < 1) throw new IllegalArgumentException("At least one sentinel is needed");
+			int quorum = this.quorum == EPHEMERAL ? sentinels / 2 + 1 : this.quorum;
+			if (quorum < 1 || quorum > sentinels) {
+				throw new IllegalArgumentException("Quorum must be between 1 and the number of sentinels");
+			}
+
+			ReplicatedRedisServer.Builder replicatedBuilder = aReplicatedRedisServer()
+					.withReplicas(replicas)
+					.withSyncTimeoutMillis(startupTimeoutMillis)
+					.withConnectionProperties(connectionProperties);
+			if (firstPort != EPHEMERAL) replicatedBuilder.withFirstPort(firstPort);
+			for (Entry<String, String> property : properties.entrySet()) {
+				replicatedBuilder.withProperty(property.getKey(), property.getValue());
+			}
+			ReplicatedRedisServer replicated = replicatedBuilder.build();
+
+			Path directory = createDirectory();
+			List<LocalRedisServer> sentinelServers = new ArrayList<>(sentinels);
+			for (int i = 0; i < sentinels; i++) {
+				int port = firstPort == EPHEMERAL ? allocatePort() : firstPort + replicas + 1 + i;
+				Configuration configuration = new SentinelConfiguration(Configuration.Builder.defaultCommandLine(),
+						port, directory, masterName, replicated.master().getPort(), quorum, downAfterMillis,
+						failoverTimeoutMillis);
+				sentinelServers.add(new LocalRedisServer(anExecution().withConfiguration(configuration).build(),
+						connectionProperties, new AlwaysDestroyLifecyclePolicy()));
+			}
+			return new SentinelRedisServer(replicated, sentinelServers, masterName, startupTimeoutMillis,
+					downAfterMillis + failoverTimeoutMillis);
+		}
+
+		private static int allocatePort() {
+			try {
+				return PortAllocator.allocate();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private static Path createDirectory() {
+			try {
+				Path directory = Files.createTempDirectory("redislauncher-sentinel");
+				directory.toFile().deleteOnExit();
+				return directory;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
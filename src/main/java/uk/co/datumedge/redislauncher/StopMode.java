@@ -0,0 +1,41 @@
+package uk.co.datumedge.redislauncher;
+
+/**
+ * How a {@link LocalRedisServer} persists its dataset when it is {@linkplain LocalRedisServer#stop(StopMode) stopped}.
+ * A server with a large dataset may take longer to save than the
+ * {@linkplain ConnectionProperties#shutdownTimeoutMillis shutdown timeout} allows, so a server whose data is thrown
+ * away afterwards is best stopped with {@link #NOSAVE}.
+ */
+public enum StopMode {
+	/**
+	 * Sends {@code SHUTDOWN}, so the server saves its dataset only if it is configured with {@code save} points.
+	 */
+	DEFAULT("SHUTDOWN"),
+
+	/**
+	 * Sends {@code SHUTDOWN NOSAVE}, so the server exits without saving its dataset, even if it is configured with
+	 * {@code save} points.
+	 */
+	NOSAVE("SHUTDOWN", "NOSAVE"),
+
+	/**
+	 * Sends {@code SHUTDOWN SAVE}, so the server saves its dataset before exiting, even if it is not configured with
+	 * {@code save} points.
+	 */
+	SAVE("SHUTDOWN", "SAVE"),
+
+	/**
+	 * Sends {@code BGSAVE} and waits, for up to the {@linkplain ConnectionProperties#shutdownTimeoutMillis shutdown
+	 * timeout}, for the background save to complete, then sends {@code SHUTDOWN NOSAVE}. The server keeps serving
+	 * requests while its dataset is saved, and the time taken to save is not part of the wait for the process to exit.
+	 * If the save fails, or does not complete in time, the server is still shut down, and is reported once as having
+	 * failed to stop.
+	 */
+	BACKGROUND_SAVE("SHUTDOWN", "NOSAVE");
+
+	final String[] shutdownCommand;
+
+	private StopMode(String... shutdownCommand) {
+		this.shutdownCommand = shutdownCommand;
+	}
+}
@@ -0,0 +1,159 @@
+package uk.co.datumedge.redislauncher;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.exec.ProcessDestroyer;
+import org.apache.commons.exec.ShutdownHookProcessDestroyer;
+
+/**
+ * A lifecycle policy that restarts a {@link LocalRedisServer} whose process exits while it is running, for example
+ * because it crashed or was killed. The server is destroyed if it fails to stop, and when the JVM terminates.
+ * <p>
+ * The first restart after an exit is attempted immediately, and waits for the server to become ready as
+ * {@link LocalRedisServer#start()} does. If a restart fails, further attempts are made with exponential backoff,
+ * starting at the initial backoff and doubling up to the maximum backoff. A server which exits again within the
+ * maximum backoff of being restarted is treated as crashing repeatedly, and continues the backoff rather than being
+ * restarted immediately. Supervision ends when the server is stopped or destroyed.
+ * <p>
+ * The number of unexpected exits, the number of restarts and the downtime of each restart are published through
+ * {@link LocalRedisServerMBean}.
+ *
+ * <pre>
+ * RedisServer server = new LocalRedisServer(execution, ConnectionProperties.DEFAULT, new SupervisingLifecyclePolicy());
+ * </pre>
+ */
+public final class SupervisingLifecyclePolicy implements LifecyclePolicy {
+	/**
+	 * The default delay before the second attempt to restart a server.
+	 */
+	public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 100;
+
+	/**
+	 * The default maximum delay between attempts to restart a server.
+	 */
+	public static final long DEFAULT_MAXIMUM_BACKOFF_MILLIS = 10000;
+
+	private static final int MAXIMUM_DOUBLINGS = 30;
+	private static final Executor EXECUTOR = Executors.newCachedThreadPool(
+			new DaemonThreadFactory("redis-server-supervisor"));
+
+	private final long initialBackoffMillis;
+	private final long maximumBackoffMillis;
+	private final Map<LocalRedisServer, Restart> lastRestarts = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a policy with the {@linkplain #DEFAULT_INITIAL_BACKOFF_MILLIS default initial} and
+	 * {@linkplain #DEFAULT_MAXIMUM_BACKOFF_MILLIS maximum} backoff.
+	 */
+	public SupervisingLifecyclePolicy() {
+		this(DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAXIMUM_BACKOFF_MILLIS);
+	}
+
+	/**
+	 * Constructs a policy with the given backoff between restart attempts.
+	 *
+	 * @param initialBackoffMillis
+	 *            the delay before the second attempt to restart a server
+	 * @param maximumBackoffMillis
+	 *            the maximum delay between attempts
+	 * @throws IllegalArgumentException
+	 *             if the initial backoff is not positive, or is greater than the maximum backoff
+	 */
+	public SupervisingLifecyclePolicy(long initialBackoffMillis, long maximumBackoffMillis) {
+		if (initialBackoffMillis < 1) throw new IllegalArgumentException("Initial backoff must be positive");
+		if (maximumBackoffMillis < initialBackoffMillis) {
+			throw new IllegalArgumentException("Maximum backoff must not be less than initial backoff");
+		}
+		this.initialBackoffMillis = initialBackoffMillis;
+		this.maximumBackoffMillis = maximumBackoffMillis;
+	}
+
+	/**
+	 * {@inheritDoc} This implementation does nothing. A restart which fails is attempted again, first destroying the
+	 * process left by the failed attempt.
+	 */
+	@Override
+	public void failedToStart(RedisServer redisServer) {
+	}
+
+	/**
+	 * {@inheritDoc} This implementation destroys the {@code redisServer}.
+	 */
+	@Override
+	public void failedToStop(RedisServer redisServer, Throwable cause) {
+		redisServer.destroy();
+	}
+
+	/**
+	 * {@inheritDoc} This implementation restarts the {@code redisServer} in the background, if it is a
+	 * {@code LocalRedisServer}.
+	 */
+	@Override
+	public void exitedUnexpectedly(RedisServer redisServer, int exitValue) {
+		if (!(redisServer instanceof LocalRedisServer)) return;
+		LocalRedisServer server = (LocalRedisServer) redisServer;
+		Restart last = lastRestarts.get(server);
+		boolean crashingRepeatedly = last != null
+				&& System.nanoTime() - last.nanos < TimeUnit.MILLISECONDS.toNanos(maximumBackoffMillis);
+		restart(server, crashingRepeatedly ? last.attempt + 1 : 0);
+	}
+
+	private void restart(LocalRedisServer server, int attempt) {
+		Executor delayed = CompletableFuture.delayedExecutor(backoffMillis(attempt), TimeUnit.MILLISECONDS, EXECUTOR);
+		CompletableFuture.runAsync(() -> {
+			try {
+				if (server.restartAfterUnexpectedExit()) {
+					remember(server, new Restart(attempt, System.nanoTime()));
+				} else {
+					// the server was stopped or destroyed, which ends its supervision
+					lastRestarts.remove(server);
+				}
+			} catch (IOException | RuntimeException e) {
+				restart(server, attempt + 1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, delayed);
+	}
+
+	/**
+	 * Records a successful restart until it is older than the maximum backoff, after which it no longer counts towards
+	 * the server crashing repeatedly. Forgetting it then means a server which is stopped or destroyed is not kept.
+	 */
+	private void remember(LocalRedisServer server, Restart restart) {
+		lastRestarts.put(server, restart);
+		Executor delayed = CompletableFuture.delayedExecutor(maximumBackoffMillis, TimeUnit.MILLISECONDS, EXECUTOR);
+		CompletableFuture.runAsync(() -> lastRestarts.remove(server, restart), delayed);
+	}
+
+	long backoffMillis(int attempt) {
+		if (attempt == 0) return 0;
+		int doublings = Math.min(attempt - 1, MAXIMUM_DOUBLINGS);
+		return Math.min(maximumBackoffMillis, initialBackoffMillis << doublings);
+	}
+
+	/**
+	 * {@inheritDoc} This implementation returns a {@code ProcessDestroyer} which destroys the server process when the
+	 * JVM terminates.
+	 */
+	@Override
+	public ProcessDestroyer getProcessDestroyer() {
+		return new ShutdownHookProcessDestroyer();
+	}
+
+	private static final class Restart {
+		final int attempt;
+		final long nanos;
+
+		Restart(int attempt, long nanos) {
+			this.attempt = attempt;
+			this.nanos = nanos;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package uk.co.datumedge.redislauncher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The results of a {@link ConfigurationSweep}, ranked by throughput. Failed combinations are ranked last.
+ */
+public final class SweepReport {
+	private static final Comparator<SweepResult> BY_THROUGHPUT = Comparator.comparing(SweepResult::isSuccessful)
+			.thenComparingDouble(SweepReport::throughput)
+			.reversed();
+
+	private final List<SweepResult> results;
+
+	SweepReport(List<SweepResult> results) {
+		List<SweepResult> ranked = new ArrayList<>(results);
+		ranked.sort(BY_THROUGHPUT);
+		this.results = Collections.unmodifiableList(ranked);
+	}
+
+	private static double throughput(SweepResult result) {
+		return result.isSuccessful() ? result.getLoadResult().getOperationsPerSecond() : 0;
+	}
+
+	/**
+	 * Returns the result of every combination, highest throughput first.
+	 *
+	 * @return an unmodifiable list of results
+	 */
+	public List<SweepResult> getResults() {
+		return results;
+	}
+
+	/**
+	 * Returns the combination with the highest throughput, or {@code null} if every combination failed.
+	 */
+	public SweepResult getBest() {
+		return results.isEmpty() || !results.get(0).isSuccessful() ? null : results.get(0);
+	}
+
+	/**
+	 * Returns a table of the results, one line per combination, highest throughput first.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder table = new StringBuilder(String.format("%4s %12s %10s %10s %10s  %s%n",
+				"rank", "ops/s", "p50 ms", "p99 ms", "max ms", "properties"));
+		int rank = 1;
+		for (SweepResult result : results) {
+			LoadResult load = result.getLoadResult();
+			if (result.isSuccessful()) {
+				table.append(String.format("%4d %12.0f %10.3f %10.3f %10.3f  %s%n", rank++,
+						load.getOperationsPerSecond(), load.getMedianLatencyMillis(),
+						load.getPercentile99LatencyMillis(), load.getMaxLatencyMillis(), result.getProperties()));
+			} else {
+				table.append(String.format("%4s %12s %10s %10s %10s  %s (%s)%n", "-", "failed", "", "", "",
+						result.getProperties(), result.getFailure().getMessage()));
+			}
+		}
+		return table.toString();
+	}
+}
@@ -0,0 +1,57 @@
+package uk.co.datumedge.redislauncher;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The outcome of running a {@link ConfigurationSweep} workload against one combination of property values.
+ */
+public final class SweepResult {
+	private final Map<String, String> properties;
+	private final LoadResult loadResult;
+	private final Exception failure;
+
+	SweepResult(Map<String, String> properties, LoadResult loadResult, Exception failure) {
+		this.properties = Collections.unmodifiableMap(properties);
+		this.loadResult = loadResult;
+		this.failure = failure;
+	}
+
+	/**
+	 * Returns the swept property values of this combination, in the order in which the properties were added to the
+	 * sweep.
+	 *
+	 * @return an unmodifiable map of property keys to values
+	 */
+	public Map<String, String> getProperties() {
+		return properties;
+	}
+
+	/**
+	 * Returns the result of the workload, or {@code null} if the combination failed.
+	 */
+	public LoadResult getLoadResult() {
+		return loadResult;
+	}
+
+	/**
+	 * Returns why the server could not be started or the workload could not be run, or {@code null} if the
+	 * combination succeeded. A property value which redis rejects is reported here rather than ending the sweep.
+	 */
+	public Exception getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Returns whether the combination's server started and its workload ran to completion, in which case
+	 * {@link #getFailure()} is {@code null}.
+	 */
+	public boolean isSuccessful() {
+		return failure == null;
+	}
+
+	@Override
+	public String toString() {
+		return properties + ": " + (isSuccessful() ? loadResult : "failed: " + failure);
+	}
+}
@@ -0,0 +1,41 @@
+package uk.co.datumedge.redislauncher;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates integers from {@code 0} to {@code n - 1} following a Zipfian distribution, in which {@code 0} is the most
+ * frequent. Uses the method of Gray et al., "Quickly Generating Billion-Record Synthetic Databases", which needs a
+ * single pass over {@code n} to set up and constant time for each value.
+ */
+final class ZipfianGenerator {
+	private final long n;
+	private final double theta;
+	private final double alpha;
+	private final double zetaN;
+	private final double eta;
+
+	ZipfianGenerator(long n, double theta) {
+		this.n = n;
+		this.theta = theta;
+		this.alpha = 1 / (1 - theta);
+		this.zetaN = zeta(n, theta);
+		double zeta2 = zeta(Math.min(n, 2), theta);
+		this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetaN);
+	}
+
+	private static double zeta(long n, double theta) {
+		double sum = 0;
+		for (long i = 1; i <= n; i++) {
+			sum += 1 / Math.pow(i, theta);
+		}
+		return sum;
+	}
+
+	long next(SplittableRandom random) {
+		double u = random.nextDouble();
+		double uz = u * zetaN;
+		if (uz < 1) return 0;
+		if (n > 1 && uz < 1 + Math.pow(0.5, theta)) return 1;
+		return Math.min(n - 1, (long) (n * Math.pow(eta * u - eta + 1, alpha)));
+	}
+}
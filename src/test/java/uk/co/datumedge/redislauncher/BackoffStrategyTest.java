@@ -0,0 +1,75 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+
+import org.junit.Test;
+
+public final class BackoffStrategyTest {
+	private static final long ELAPSED = 0;
+
+	@Test
+	public void fixedBackoffAlwaysWaitsTheSameTime() {
+		BackoffStrategy strategy = BackoffStrategy.fixed(100);
+		assertThat(strategy.delayMillis(1, ELAPSED), is(100L));
+		assertThat(strategy.delayMillis(10, ELAPSED), is(100L));
+	}
+
+	@Test
+	public void exponentialBackoffDoublesUpToMaximum() {
+		BackoffStrategy strategy = BackoffStrategy.exponential(1, 100, 0);
+		assertThat(strategy.delayMillis(1, ELAPSED), is(1L));
+		assertThat(strategy.delayMillis(2, ELAPSED), is(2L));
+		assertThat(strategy.delayMillis(7, ELAPSED), is(64L));
+		assertThat(strategy.delayMillis(8, ELAPSED), is(100L));
+		assertThat(strategy.delayMillis(Integer.MAX_VALUE, ELAPSED), is(100L));
+	}
+
+	@Test
+	public void exponentialBackoffRemovesUpToJitterFractionOfDelay() {
+		BackoffStrategy strategy = BackoffStrategy.exponential(100, 100, 0.5);
+		for (int i = 0; i < 100; i++) {
+			assertThat(strategy.delayMillis(1, ELAPSED), is(allOf(greaterThanOrEqualTo(50L), lessThanOrEqualTo(100L))));
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void rejectsJitterGreaterThanOne() {
+		BackoffStrategy.exponential(1, 100, 1.5);
+	}
+
+	@Test
+	public void fibonacciBackoffFollowsFibonacciSequenceUpToMaximum() {
+		BackoffStrategy strategy = BackoffStrategy.fibonacci(10, 100);
+		assertThat(strategy.delayMillis(1, ELAPSED), is(10L));
+		assertThat(strategy.delayMillis(2, ELAPSED), is(10L));
+		assertThat(strategy.delayMillis(3, ELAPSED), is(20L));
+		assertThat(strategy.delayMillis(4, ELAPSED), is(30L));
+		assertThat(strategy.delayMillis(5, ELAPSED), is(50L));
+		assertThat(strategy.delayMillis(6, ELAPSED), is(80L));
+		assertThat(strategy.delayMillis(7, ELAPSED), is(100L));
+		assertThat(strategy.delayMillis(Integer.MAX_VALUE, ELAPSED), is(100L));
+	}
+
+	@Test
+	public void deadlineBackoffShortensDelayToDeadlineThenStops() {
+		BackoffStrategy strategy = BackoffStrategy.withDeadline(250, BackoffStrategy.fixed(100));
+		assertThat(strategy.delayMillis(1, 0), is(100L));
+		assertThat(strategy.delayMillis(3, 200), is(50L));
+		assertThat(strategy.delayMillis(4, 250), is(BackoffStrategy.STOP));
+	}
+
+	@Test
+	public void deadlineBackoffStopsWhenStrategyStops() {
+		BackoffStrategy strategy = BackoffStrategy.withDeadline(250, new BackoffStrategy() {
+			@Override
+			public long delayMillis(int failedAttempts, long elapsedMillis) {
+				return STOP;
+			}
+		});
+		assertThat(strategy.delayMillis(1, 0), is(BackoffStrategy.STOP));
+	}
+}
@@ -0,0 +1,101 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public final class CgroupTest {
+	private final Path parent;
+
+	public CgroupTest() throws IOException {
+		parent = Files.createTempDirectory("redislauncher-cgroup");
+		parent.toFile().deleteOnExit();
+	}
+
+	@Test
+	public void appliesLimitsToNewCgroup() throws IOException {
+		Cgroup cgroup = new Cgroup(parent, 1 << 20, 1.5);
+		cgroup.create();
+
+		Path directory = cgroup.procsFile().getParent();
+		assertThat(directory.getParent(), is(parent));
+		assertThat(read(directory.resolve("memory.max")), is("1048576"));
+		assertThat(read(directory.resolve("cpu.max")), is("150000 100000"));
+	}
+
+	@Test
+	public void enablesControllersInParent() throws IOException {
+		new Cgroup(parent, 0, 2).create();
+		assertThat(read(parent.resolve("cgroup.subtree_control")), is("+memory +cpu"));
+	}
+
+	@Test
+	public void enablesOnlyControllersNotAlreadyEnabled() throws IOException {
+		write(parent.resolve("cgroup.subtree_control"), "cpu io\n");
+		new Cgroup(parent, 0, 2).create();
+		assertThat(read(parent.resolve("cgroup.subtree_control")), is("+memory"));
+	}
+
+	@Test
+	public void readsAccounting() throws IOException {
+		Cgroup cgroup = new Cgroup(parent, 0, 0);
+		cgroup.create();
+		Path directory = cgroup.procsFile().getParent();
+		write(directory.resolve("memory.peak"), "4096\n");
+		write(directory.resolve("cpu.stat"), "usage_usec 2500\nuser_usec 2000\nsystem_usec 500\n");
+
+		assertThat(cgroup.peakMemoryBytes(), is(4096L));
+		assertThat(cgroup.cpuTimeMicros(), is(2500L));
+	}
+
+	@Test
+	public void keepsAccountingOnceRemoved() throws IOException {
+		Cgroup cgroup = new Cgroup(parent, 0, 0);
+		cgroup.create();
+		Path directory = cgroup.procsFile().getParent();
+		write(directory.resolve("memory.peak"), "4096\n");
+		write(directory.resolve("cpu.stat"), "usage_usec 2500\n");
+		cgroup.remove();
+
+		assertThat(cgroup.procsFile(), is(nullValue()));
+		assertThat(cgroup.peakMemoryBytes(), is(4096L));
+		assertThat(cgroup.cpuTimeMicros(), is(2500L));
+	}
+
+	@Test
+	public void retriesRemovingCgroupWhichCouldNotBeRemoved() throws IOException {
+		Cgroup cgroup = new Cgroup(parent, 1 << 20, 0);
+		cgroup.create();
+		Path directory = cgroup.procsFile().getParent();
+		// a cgroup directory which still holds files stands in for one which still holds processes
+		cgroup.remove();
+		assertThat(Files.exists(directory), is(true));
+
+		Files.delete(directory.resolve("memory.max"));
+		cgroup.create();
+		assertThat(Files.exists(directory), is(false));
+	}
+
+	@Test
+	public void hasNoProcsFileOrAccountingUntilCreated() {
+		Cgroup cgroup = new Cgroup(parent, 0, 0);
+		assertThat(cgroup.procsFile(), is(nullValue()));
+		assertThat(cgroup.peakMemoryBytes(), is(-1L));
+		assertThat(cgroup.cpuTimeMicros(), is(-1L));
+	}
+
+	private static String read(Path file) throws IOException {
+		return new String(Files.readAllBytes(file), StandardCharsets.US_ASCII);
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+	}
+}
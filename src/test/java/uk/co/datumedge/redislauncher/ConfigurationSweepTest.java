@@ -0,0 +1,131 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static uk.co.datumedge.redislauncher.ConfigurationSweep.aConfigurationSweep;
+import static uk.co.datumedge.redislauncher.LoadHarness.aLoadHarness;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public final class ConfigurationSweepTest {
+	private static final int TIMEOUT = 60000;
+
+	@Test
+	public void combinesEveryValueOfEveryParameter() {
+		ConfigurationSweep sweep = aConfigurationSweep()
+				.withParameter("hz", "10", "100")
+				.withParameter("maxmemory-policy", "noeviction", "allkeys-lru", "allkeys-lfu")
+				.build();
+
+		List<String> combinations = new ArrayList<>();
+		for (Map<String, String> combination : sweep.combinations()) {
+			combinations.add(combination.toString());
+		}
+
+		assertThat(combinations, contains(
+				"{hz=10, maxmemory-policy=noeviction}",
+				"{hz=10, maxmemory-policy=allkeys-lru}",
+				"{hz=10, maxmemory-policy=allkeys-lfu}",
+				"{hz=100, maxmemory-policy=noeviction}",
+				"{hz=100, maxmemory-policy=allkeys-lru}",
+				"{hz=100, maxmemory-policy=allkeys-lfu}"));
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void ranksCombinationsByThroughput() throws IOException, InterruptedException {
+		SweepReport report = aConfigurationSweep()
+				.withParameter("hz", "10", "100")
+				.withParameter("activerehashing", "yes", "no")
+				.withLoadHarness(aLoadHarness().withRequests(2000).withKeySpace(100).build())
+				.withParallelism(2)
+				.build()
+				.run();
+
+		List<SweepResult> results = report.getResults();
+		assertThat(results.size(), is(4));
+		for (int i = 0; i < results.size(); i++) {
+			assertThat(results.get(i).isSuccessful(), is(true));
+			assertThat(results.get(i).getLoadResult().getOperations(), is(2000L));
+			if (i > 0) {
+				assertThat(results.get(i - 1).getLoadResult().getOperationsPerSecond(),
+						greaterThanOrEqualTo(results.get(i).getLoadResult().getOperationsPerSecond()));
+			}
+		}
+		assertThat(report.getBest(), is(results.get(0)));
+	}
+
+	@Test
+	public void ranksFailedCombinationsLast() {
+		SweepResult failed = new SweepResult(properties("hz", "0"), null, new IOException("rejected"));
+		SweepResult slow = new SweepResult(properties("hz", "10"), result(1000), null);
+		SweepResult fast = new SweepResult(properties("hz", "100"), result(100), null);
+
+		SweepReport report = new SweepReport(Arrays.asList(failed, slow, fast));
+
+		assertThat(report.getResults(), contains(fast, slow, failed));
+	}
+
+	@Test
+	public void hasNoBestCombinationIfEveryCombinationFailed() {
+		SweepResult failed = new SweepResult(properties("hz", "0"), null, new IOException("rejected"));
+		assertThat(new SweepReport(Collections.singletonList(failed)).getBest(), is(nullValue()));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void rejectsSweepingPort() {
+		aConfigurationSweep().withParameter("port", "6379", "6380");
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void rejectsParameterWithoutValues() {
+		aConfigurationSweep().withParameter("hz");
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void pinsEachServerToCpuList() throws IOException, InterruptedException {
+		SweepReport report = aConfigurationSweep()
+				.withParameter("hz", "10", "100")
+				.withLoadHarness(aLoadHarness().withRequests(100).build())
+				.withCpuLists("0")
+				.build()
+				.run();
+
+		for (SweepResult result : report.getResults()) {
+			assertThat(result.isSuccessful(), is(true));
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void rejectsMoreParallelismThanCpuLists() {
+		aConfigurationSweep().withCpuLists("0", "1").withParallelism(3).build();
+	}
+
+	@Test
+	public void defaultsParallelismAgainOnEveryBuild() {
+		ConfigurationSweep.Builder builder = aConfigurationSweep().withCpuLists("0", "1");
+		builder.build();
+		builder.withCpuLists("0").build();
+	}
+
+	private static Map<String, String> properties(String key, String value) {
+		Map<String, String> properties = new LinkedHashMap<>();
+		properties.put(key, value);
+		return properties;
+	}
+
+	private static LoadResult result(long elapsedMillis) {
+		return new LoadResult(1000, 0, TimeUnit.MILLISECONDS.toNanos(elapsedMillis), LatencySummary.EMPTY);
+	}
+}
@@ -1,14 +1,23 @@
 package uk.co.datumedge.redislauncher;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
 import static uk.co.datumedge.redislauncher.Configuration.programmaticConfiguration;
+import static uk.co.datumedge.redislauncher.Configuration.staticConfiguration;
 import static uk.co.datumedge.redislauncher.Matchers.containsBytes;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.ServerSocket;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
+import org.apache.commons.exec.CommandLine;
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
@@ -29,4 +38,73 @@ public class ConfigurationTest {
 	public void doesNotAllowPortPropertyKey() {
 		programmaticConfiguration().withProperty("port", "1234");
 	}
+
+	@Test
+	public void allocatesDistinctEphemeralPorts() {
+		Configuration first = programmaticConfiguration().withEphemeralPort().build();
+		Configuration second = programmaticConfiguration().withEphemeralPort().build();
+		assertThat(first.port, is(not(second.port)));
+	}
+
+	@Test
+	public void allocatesEphemeralPortWhichCanBeBound() throws IOException {
+		new ServerSocket(programmaticConfiguration().withEphemeralPort().build().port).close();
+	}
+
+	@Test
+	public void suppliesEphemeralPortInProgrammaticConfigurationInputStream() throws IOException {
+		Configuration configuration = programmaticConfiguration().withEphemeralPort().build();
+		assertThat(toByteArray(configuration.inputStream()),
+				containsBytes(("port " + configuration.port).getBytes(Charset.forName("UTF-8"))));
+	}
+
+	@Test
+	public void appendsEphemeralPortToStaticConfigurationCommandLine() throws IOException {
+		Configuration configuration = staticConfiguration()
+				.withCommandLine(new CommandLine("redis-server"))
+				.withEphemeralPort()
+				.build();
+		assertThat(configuration.commandLine().getArguments(),
+				is(equalTo(new String[] {"--port", Integer.toString(configuration.port)})));
+	}
+
+	@Test
+	public void usesExplicitPortGivenAfterEphemeralPort() {
+		assertThat(programmaticConfiguration().withEphemeralPort().withPort(1234).build().port, is(1234));
+	}
+
+	@Test
+	public void suppliesUnixSocketInProgrammaticConfigurationInputStream() throws IOException {
+		Configuration configuration = programmaticConfiguration().withUnixSocket(Paths.get("/tmp/redis.sock")).build();
+		assertThat(toByteArray(configuration.inputStream()),
+				containsBytes("unixsocket \"/tmp/redis.sock\"".getBytes(Charset.forName("UTF-8"))));
+	}
+
+	@Test
+	public void pointsDirectoryAndFilenameAtInitialDataset() throws IOException {
+		Configuration configuration = programmaticConfiguration()
+				.withProperty("dbfilename", "other.rdb")
+				.withInitialDataset(Paths.get("fixtures.rdb"))
+				.build();
+		String input = new String(toByteArray(configuration.inputStream()), Charset.forName("UTF-8"));
+		assertThat(input.substring(input.lastIndexOf("dbfilename")), is("dbfilename \"dump.rdb\""));
+		assertThat(input.contains("\ndir \""), is(true));
+	}
+
+	@Test
+	public void placesInitialDatasetInWorkingDirectoryWhenPrepared() throws IOException {
+		Path rdb = Files.createTempFile("redislauncher", ".rdb");
+		Files.write(rdb, "REDIS".getBytes(Charset.forName("UTF-8")));
+		Configuration configuration = programmaticConfiguration().withInitialDataset(rdb).build();
+		configuration.prepare();
+		configuration.prepare();
+		String input = new String(toByteArray(configuration.inputStream()), Charset.forName("UTF-8"));
+		String directory = input.substring(input.indexOf("\ndir \"") + 6, input.indexOf("\"\ndbfilename"));
+		assertThat(Files.readAllBytes(Paths.get(directory, "dump.rdb")), is(Files.readAllBytes(rdb)));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void doesNotAllowUnixSocketPropertyKey() {
+		programmaticConfiguration().withProperty("unixsocket", "/tmp/redis.sock");
+	}
 }
@@ -1,6 +1,7 @@
 package uk.co.datumedge.redislauncher;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
 import static uk.co.datumedge.redislauncher.Configuration.staticConfiguration;
 import static uk.co.datumedge.redislauncher.Execution.anExecution;
 import static uk.co.datumedge.redislauncher.JavaCommandLine.javaCommandLine;
@@ -34,6 +35,44 @@ public final class ExecutionTest {
 		assertThat(errorStream, containsBytes());
 	}
 
+	@Test
+	public void launchesServerThroughSchedulingCommands() throws IOException {
+		Execution execution = anExecution()
+				.withConfiguration(staticConfiguration().withCommandLine(new CommandLine("redis-server")).build())
+				.withNumaNode(1)
+				.withCpuAffinity("0-3,8")
+				.withNiceness(-5)
+				.withIoNiceness(2)
+				.build();
+
+		assertThat(execution.commandLine().toString(), is("numactl --cpunodebind=1 --membind=1 taskset -c 0-3,8 " +
+				"nice -n -5 ionice -c 2 -n 2 redis-server"));
+	}
+
+	@Test
+	public void launchesServerDirectlyWithoutSchedulingOptions() throws IOException {
+		Execution execution = anExecution()
+				.withConfiguration(staticConfiguration().withCommandLine(new CommandLine("redis-server")).build())
+				.build();
+
+		assertThat(execution.commandLine().toString(), is("redis-server"));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void rejectsMalformedCpuList() {
+		anExecution().withCpuAffinity("0-");
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void rejectsNicenessOutOfRange() {
+		anExecution().withNiceness(20);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void rejectsMemoryLimitWithoutCgroup() {
+		anExecution().withMemoryLimit(1 << 20).build();
+	}
+
 	private Execution.Builder anExecutionOf(Class<?> mainClass) {
 		return anExecution().withConfiguration(staticConfiguration()
 				.withCommandLine(commandLineFor(mainClass)).build());
@@ -0,0 +1,78 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.junit.Test;
+
+public final class InfoSamplerTest {
+	private static final String INFO = "# Clients\r\n"
+			+ "connected_clients:3\r\n"
+			+ "\r\n"
+			+ "# Memory\r\n"
+			+ "used_memory:874168\r\n"
+			+ "used_memory_human:853.68K\r\n"
+			+ "mem_fragmentation_ratio:12.75\r\n"
+			+ "\r\n"
+			+ "# Stats\r\n"
+			+ "instantaneous_ops_per_sec:42\r\n"
+			+ "evicted_keys:0\r\n"
+			+ "keyspace_hits:10\r\n"
+			+ "keyspace_misses:7\r\n";
+
+	private final AtomicLongArray values = new AtomicLongArray(InfoSampler.Statistic.values().length);
+
+	@Test
+	public void parsesStatistics() {
+		InfoSampler.parse(buffer(INFO), values);
+		assertThat(value(InfoSampler.Statistic.CONNECTED_CLIENTS), is(3L));
+		assertThat(value(InfoSampler.Statistic.USED_MEMORY), is(874168L));
+		assertThat(value(InfoSampler.Statistic.INSTANTANEOUS_OPS_PER_SEC), is(42L));
+		assertThat(value(InfoSampler.Statistic.EVICTED_KEYS), is(0L));
+		assertThat(value(InfoSampler.Statistic.KEYSPACE_HITS), is(10L));
+		assertThat(value(InfoSampler.Statistic.KEYSPACE_MISSES), is(7L));
+		assertThat(Double.longBitsToDouble(value(InfoSampler.Statistic.MEM_FRAGMENTATION_RATIO)), is(12.75));
+	}
+
+	@Test
+	public void keepsPreviousValueWhenValueIsMalformed() {
+		values.set(InfoSampler.Statistic.USED_MEMORY.ordinal(), 5);
+		InfoSampler.parse(buffer("used_memory:lots\r\n"), values);
+		assertThat(value(InfoSampler.Statistic.USED_MEMORY), is(5L));
+	}
+
+	@Test
+	public void parsesOnlyTheBufferRemaining() {
+		ByteBuffer buffer = buffer("used_memory:1\r\nused_memory:2\r\n");
+		buffer.limit(15);
+		InfoSampler.parse(buffer, values);
+		assertThat(value(InfoSampler.Statistic.USED_MEMORY), is(1L));
+	}
+
+	@Test(timeout=5000)
+	public void stopDoesNotWaitForUnansweredSample() throws IOException {
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+			InfoSampler sampler = new InfoSampler(serverSocket.getLocalSocketAddress(), 60000);
+			sampler.start();
+			try (Socket peer = serverSocket.accept()) {
+				peer.getInputStream().read();
+				sampler.stop();
+			}
+		}
+	}
+
+	private long value(InfoSampler.Statistic statistic) {
+		return values.get(statistic.ordinal());
+	}
+
+	private static ByteBuffer buffer(String string) {
+		return ByteBuffer.wrap(string.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,56 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.core.Is.is;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public final class LatencyHistogramTest {
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	@Test
+	public void summarisesEmptyHistogram() {
+		assertThat(histogram.summary().getCount(), is(0L));
+	}
+
+	@Test
+	public void recordsExactValuesBelowSixteenMicroseconds() {
+		histogram.record(7, TimeUnit.MICROSECONDS);
+		LatencySummary summary = histogram.summary();
+		assertThat(summary.getMedian(), is(0.007));
+		assertThat(summary.getMin(), is(0.007));
+		assertThat(summary.getMax(), is(0.007));
+	}
+
+	@Test
+	public void computesPercentilesWithinBucketPrecision() {
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i, TimeUnit.MILLISECONDS);
+		}
+		LatencySummary summary = histogram.summary();
+		assertThat(summary.getCount(), is(1000L));
+		assertThat(summary.getMean(), is(closeTo(500.5, 0.001)));
+		assertThat(summary.getMedian(), is(closeTo(500, 500 * 0.07)));
+		assertThat(summary.getPercentile99(), is(closeTo(990, 990 * 0.07)));
+		assertThat(summary.getPercentile999(), is(closeTo(999, 999 * 0.07)));
+		assertThat(summary.getMax(), is(1000.0));
+	}
+
+	@Test
+	public void bucketUpperBoundContainsEveryValueInBucket() {
+		for (long micros : new long[] {16, 17, 31, 32, 1000, 123456789, Long.MAX_VALUE}) {
+			int bucket = LatencyHistogram.bucketOf(micros);
+			assertThat(LatencyHistogram.upperBoundOf(bucket) >= micros, is(true));
+			assertThat(bucket == 0 || LatencyHistogram.upperBoundOf(bucket - 1) < micros, is(true));
+		}
+	}
+
+	@Test
+	public void recordsNegativeLatencyAsZero() {
+		histogram.record(-5, TimeUnit.MILLISECONDS);
+		assertThat(histogram.summary().getMax(), is(0.0));
+	}
+}
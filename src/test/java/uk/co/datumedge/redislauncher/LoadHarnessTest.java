@@ -0,0 +1,97 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+import static uk.co.datumedge.redislauncher.Configuration.programmaticConfiguration;
+import static uk.co.datumedge.redislauncher.Execution.anExecution;
+import static uk.co.datumedge.redislauncher.LoadHarness.aLoadHarness;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.datumedge.redislauncher.LoadHarness.Operation;
+
+public final class LoadHarnessTest {
+	private static final int TIMEOUT = 60000;
+	private final LocalRedisServer server = new LocalRedisServer(anExecution()
+			.withConfiguration(programmaticConfiguration()
+					.withProperty("save", "\"\"")
+					.withProperty("appendonly", "no")
+					.withEphemeralPort()
+					.build())
+			.build());
+
+	@Before
+	public void startServer() throws IOException, InterruptedException {
+		server.start();
+	}
+
+	@After
+	public void stopServer() throws IOException, InterruptedException {
+		try {
+			server.stop();
+		} finally {
+			server.destroy();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void sendsEveryRequest() throws IOException, InterruptedException {
+		LoadResult result = aLoadHarness()
+				.withConnections(3)
+				.withPipelineDepth(8)
+				.withOperation(Operation.GET, 2)
+				.withOperation(Operation.SET, 1)
+				.withOperation(Operation.INCR, 1)
+				.withOperation(Operation.LPUSH, 1)
+				.withKeySpace(100)
+				.withRequests(1000)
+				.build()
+				.run(server);
+
+		assertThat(result.getOperations(), is(1000L));
+		assertThat(result.getErrors(), is(0L));
+		assertThat(result.getOperationsPerSecond(), greaterThan(0.0));
+		assertThat(result.getMaxLatencyMillis(), greaterThan(0.0));
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void preloadsKeysReadByGet() throws IOException, InterruptedException {
+		aLoadHarness().withOperation(Operation.GET, 1).withKeySpace(50).withRequests(10).build().run(server);
+		assertThat(server.execute("DBSIZE"), is("50"));
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void countsErrorReplies() throws IOException, InterruptedException {
+		aLoadHarness().withOperation(Operation.SET, 1).withKeySpace(1).withRequests(1).build().run(server);
+		server.execute("RENAME", "key:0", "counter:0");
+
+		LoadResult result = aLoadHarness().withOperation(Operation.INCR, 1).withKeySpace(1).withRequests(5).build()
+				.run(server);
+
+		assertThat(result.getErrors(), is(5L));
+	}
+
+	@Test
+	public void zipfianDistributionFavoursLowestKeys() {
+		ZipfianGenerator zipfian = new ZipfianGenerator(1000, 0.99);
+		SplittableRandom random = new SplittableRandom(0);
+		int[] counts = new int[1000];
+		for (int i = 0; i < 100000; i++) {
+			counts[(int) zipfian.next(random)]++;
+		}
+		assertThat(counts[0], greaterThan(counts[1]));
+		assertThat(counts[1], greaterThan(counts[10]));
+		assertThat(counts[10], greaterThan(counts[500]));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void rejectsNonPositiveConnections() {
+		aLoadHarness().withConnections(0).build();
+	}
+}
@@ -0,0 +1,72 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.hamcrest.core.StringStartsWith.startsWith;
+import static uk.co.datumedge.redislauncher.LocalRedisCluster.aLocalRedisCluster;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+
+public final class LocalRedisClusterTest {
+	private static final int TIMEOUT = 60000;
+	private final LocalRedisCluster cluster = aLocalRedisCluster()
+			.withMasters(3)
+			.withReplicasPerMaster(1)
+			.build();
+
+	@After
+	public void stopCluster() throws IOException, InterruptedException {
+		try {
+			cluster.stop();
+		} finally {
+			cluster.destroy();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void assignsEverySlotBetweenMasters() throws IOException, InterruptedException {
+		cluster.start();
+		String info = cluster.masters().get(0).execute("CLUSTER", "INFO");
+		assertThat(info, containsString("cluster_state:ok"));
+		assertThat(info, containsString("cluster_slots_assigned:16384"));
+		assertThat(info, containsString("cluster_size:3"));
+		assertThat(info, containsString("cluster_known_nodes:6"));
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void attachesReplicasToMasters() throws IOException, InterruptedException {
+		cluster.start();
+		assertThat(cluster.replicas().size(), is(3));
+		for (LocalRedisServer replica : cluster.replicas()) {
+			assertThat(replica.execute("ROLE"), startsWith("slave"));
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void formsNewClusterWhenStartedAgain() throws IOException, InterruptedException {
+		cluster.start();
+		cluster.stop();
+		cluster.start();
+		assertThat(cluster.nodes().get(5).execute("CLUSTER", "INFO"), containsString("cluster_state:ok"));
+	}
+
+	@Test
+	public void reservesDistinctPortsWithClusterBusPortsInRange() {
+		Set<Integer> ports = new HashSet<>();
+		for (LocalRedisServer node : cluster.nodes()) {
+			assertThat(ports.add(node.getPort()), is(true));
+			assertThat(node.getPort() + 10000 <= 65535, is(true));
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void rejectsClusterBusPortsOutOfRange() {
+		aLocalRedisCluster().withFirstPort(60000).build();
+	}
+}
@@ -3,6 +3,7 @@ package uk.co.datumedge.redislauncher;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.fail;
 import static uk.co.datumedge.redislauncher.Configuration.programmaticConfiguration;
@@ -13,8 +14,18 @@ import static uk.co.datumedge.redislauncher.JavaCommandLine.javaCommandLine;
 import java.io.File;
 import java.io.IOException;
 import java.net.ConnectException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
 
 import javax.management.InstanceNotFoundException;
 import javax.management.JMException;
@@ -24,11 +35,13 @@ import javax.management.MBeanServerFactory;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 import javax.management.ReflectionException;
+import javax.management.openmbean.CompositeData;
 
 import org.apache.commons.exec.CommandLine;
 import org.apache.commons.exec.DefaultExecutor;
 import org.apache.commons.exec.ExecuteException;
 import org.apache.commons.exec.ExecuteWatchdog;
+import org.apache.commons.exec.ProcessDestroyer;
 import org.hamcrest.Matchers;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
@@ -205,6 +218,78 @@ public final class LocalRedisServerTest {
 		}
 	}
 
+	@Test(timeout=TIMEOUT)
+	public void givesUpConnectingWhenBackoffDeadlinePasses() throws IOException, InterruptedException {
+		ConnectionProperties connectionProperties = new ConnectionProperties.Builder()
+				.withMaximumConnectionAttempts(Integer.MAX_VALUE)
+				.withConnectionBackoff(BackoffStrategy.withDeadline(200, BackoffStrategy.exponential(1, 50, 0.5)))
+				.build();
+		LocalRedisServer server = new LocalRedisServer(invalidCommand(), connectionProperties,
+				new AlwaysDestroyLifecyclePolicy());
+
+		try {
+			server.start();
+			fail("Expected ConnectException");
+		} catch (ConnectException e) {
+			assertThat(server.getConnectionAttempts() > 1, is(true));
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void startsUsingExponentialBackoff() throws IOException, InterruptedException {
+		ConnectionProperties connectionProperties = new ConnectionProperties.Builder()
+				.withMaximumConnectionAttempts(20)
+				.withConnectionBackoff(BackoffStrategy.exponential(1, 100, 0.5))
+				.withReadinessBackoff(BackoffStrategy.exponential(1, 1000, 0.5))
+				.build();
+		LocalRedisServer server = new LocalRedisServer(execution, connectionProperties, mockLifecyclePolicy);
+		allowingMockLifecyclePolicyReturnsNullProcessDestroyer();
+
+		try {
+			server.start();
+			pingServer();
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void startsWhenCompositeReadinessCheckPasses() throws IOException, InterruptedException {
+		ConnectionProperties connectionProperties = new ConnectionProperties.Builder()
+				.withReadinessCheck(ReadinessCheck.ping()
+						.and(ReadinessCheck.loadingComplete())
+						.and(ReadinessCheck.replicationLinkUp()))
+				.build();
+		LocalRedisServer server = new LocalRedisServer(execution, connectionProperties, mockLifecyclePolicy);
+		allowingMockLifecyclePolicyReturnsNullProcessDestroyer();
+
+		try {
+			server.start();
+			pingServer();
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test(timeout=TIMEOUT, expected=ServerNotReadyException.class)
+	public void throwsServerNotReadyExceptionWhenReadinessCheckDoesNotPass() throws IOException, InterruptedException {
+		ConnectionProperties connectionProperties = new ConnectionProperties.Builder()
+				.withReadinessCheck(ReadinessCheck.clusterStateOk())
+				.withMaximumReadinessAttempts(2)
+				.withReadinessBackoff(BackoffStrategy.fixed(1))
+				.build();
+		LocalRedisServer server = new LocalRedisServer(execution, connectionProperties,
+				new AlwaysDestroyLifecyclePolicy());
+
+		try {
+			server.start();
+		} finally {
+			server.stop();
+		}
+	}
+
 	private Execution invalidCommand() {
 		return anExecution()
 				.withConfiguration((staticConfiguration().withCommandLine(new CommandLine("java")).build()))
@@ -370,6 +455,8 @@ public final class LocalRedisServerTest {
 		allowingMockLifecyclePolicyReturnsNullProcessDestroyer();
 		context.checking(new Expectations() {{
 			oneOf(mockLifecyclePolicy).failedToStop(with(server), with(Matchers.<Throwable>instanceOf(ConnectException.class)));
+			// the process may be seen to exit before stop() is called
+			allowing(mockLifecyclePolicy).exitedUnexpectedly(with(server), with(any(int.class)));
 		}});
 
 		Jedis jedis = null;
@@ -438,6 +525,163 @@ public final class LocalRedisServerTest {
 		}
 	}
 
+	@Test
+	public void publishesLifecycleMetricsUsingJmx() throws JMException, IOException, InterruptedException {
+		mBeanServer.registerMBean(server, objectName);
+
+		server.start();
+		assertThat((Long) mBeanServer.getAttribute(objectName, "Pid"), is(Matchers.greaterThan(0L)));
+		server.stop();
+		server.start();
+		server.stop();
+
+		assertThat((Long) ((CompositeData) mBeanServer.getAttribute(objectName, "ReadyTime")).get("count"), is(2L));
+		assertThat((Long) ((CompositeData) mBeanServer.getAttribute(objectName, "ShutdownTime")).get("count"), is(2L));
+		assertThat((Long) mBeanServer.getAttribute(objectName, "RestartCount"), is(1L));
+		assertThat((Long) mBeanServer.getAttribute(objectName, "ReadinessAttempts"), is(Matchers.greaterThanOrEqualTo(2L)));
+		assertThat((Long) mBeanServer.getAttribute(objectName, "Pid"), is(-1L));
+		assertThat((Long) mBeanServer.getAttribute(objectName, "UptimeMillis"), is(0L));
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void publishesSampledInfoStatisticsUsingJmx() throws JMException, IOException, InterruptedException {
+		LocalRedisServer server = new LocalRedisServer(anExecution()
+				.withConfiguration(programmaticConfiguration().withPort(6380).build())
+				.build(),
+				new ConnectionProperties.Builder().withInfoSamplingIntervalMillis(10).build(),
+				new KeepRunningOnErrorLifecyclePolicy());
+		mBeanServer.registerMBean(server, objectName);
+		try {
+			server.start();
+			server.execute("GET", "missing");
+			while ((Long) mBeanServer.getAttribute(objectName, "KeyspaceMisses") < 1) {
+				Thread.sleep(10);
+			}
+			assertThat((Long) mBeanServer.getAttribute(objectName, "UsedMemory"), is(Matchers.greaterThan(0L)));
+			assertThat((Long) mBeanServer.getAttribute(objectName, "ConnectedClients"), is(Matchers.greaterThanOrEqualTo(2L)));
+			assertThat((Double) mBeanServer.getAttribute(objectName, "MemFragmentationRatio"), is(Matchers.greaterThan(0.0)));
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void reportsUnresponsiveServerWhenWatchdogPingExceedsThreshold() throws IOException, InterruptedException {
+		final CountDownLatch unresponsive = new CountDownLatch(1);
+		LifecyclePolicy lifecyclePolicy = new LifecyclePolicy() {
+			@Override
+			public void failedToStart(RedisServer redisServer) {
+			}
+
+			@Override
+			public void failedToStop(RedisServer redisServer, Throwable cause) {
+			}
+
+			@Override
+			public void serverUnresponsive(RedisServer redisServer, long latencyMillis) {
+				unresponsive.countDown();
+			}
+
+			@Override
+			public ProcessDestroyer getProcessDestroyer() {
+				return NullProcessDestroyer.INSTANCE;
+			}
+		};
+		LocalRedisServer server = new LocalRedisServer(anExecution()
+				.withConfiguration(programmaticConfiguration().withPort(6380).build())
+				.build(),
+				new ConnectionProperties.Builder()
+					.withWatchdogIntervalMillis(10)
+					.withUnresponsiveThresholdMillis(100)
+					.build(),
+				lifecyclePolicy);
+		try {
+			server.start();
+			while ((Long) server.getPingLatency().get("count") < 1) {
+				Thread.sleep(10);
+			}
+			assertThat(server.getUnresponsiveCount(), is(0L));
+			server.execute("CLIENT", "PAUSE", "500");
+			unresponsive.await();
+			assertThat(server.getUnresponsiveCount(), is(Matchers.greaterThanOrEqualTo(1L)));
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void launchesServerWithCpuAffinityAndNiceness() throws IOException, InterruptedException {
+		LocalRedisServer server = new LocalRedisServer(anExecution()
+				.withCpuAffinity("0")
+				.withNiceness(5)
+				.withIoNiceness(4)
+				.build());
+		try {
+			server.start();
+			assertThat(server.execute("INFO", "server"), Matchers.containsString("process_id:" + server.getPid()));
+			Path proc = Path.of("/proc", Long.toString(server.getPid()));
+			assertThat(Files.readAllLines(proc.resolve("status")), Matchers.hasItem("Cpus_allowed_list:\t0"));
+			String stat = Files.readString(proc.resolve("stat"));
+			assertThat(stat.substring(stat.lastIndexOf(')') + 2).split(" ")[16], is("5"));
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void launchesServerInsideCgroup() throws IOException, InterruptedException {
+		Path parent = Files.createTempDirectory("redislauncher-cgroup");
+		LocalRedisServer server = new LocalRedisServer(anExecution().withCgroup(parent).build());
+		try {
+			server.start();
+			Path procsFile;
+			try (Stream<Path> cgroups = Files.list(parent)) {
+				procsFile = cgroups.filter(Files::isDirectory).findFirst().get().resolve("cgroup.procs");
+			}
+			assertThat(Files.readString(procsFile).trim(), is(Long.toString(server.getPid())));
+			assertThat(server.getPeakMemoryBytes(), is(Matchers.greaterThan(0L)));
+			assertThat(server.getCpuTimeMillis(), is(Matchers.greaterThanOrEqualTo(0L)));
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void samplesProcessResourceUsage() throws IOException, InterruptedException, JMException {
+		LocalRedisServer server = new LocalRedisServer(anExecution().build(),
+				new ConnectionProperties.Builder().withProcessSamplingIntervalMillis(10).build(),
+				new AlwaysDestroyLifecyclePolicy());
+		mBeanServer.registerMBean(server, objectName);
+		try {
+			server.start();
+			while (server.processStatistics().getSampledAtMillis() == 0) {
+				Thread.sleep(10);
+			}
+			ProcessStatistics statistics = server.processStatistics();
+			assertThat(statistics.getResidentSetBytes(), is(Matchers.greaterThan(0L)));
+			assertThat(statistics.getPeakResidentSetBytes(),
+					is(Matchers.greaterThanOrEqualTo(statistics.getResidentSetBytes())));
+			assertThat(statistics.getThreads(), is(Matchers.greaterThan(0L)));
+			assertThat(statistics.getMinorPageFaults(), is(Matchers.greaterThan(0L)));
+			CompositeData attribute = (CompositeData) mBeanServer.getAttribute(objectName, "ProcessStatistics");
+			assertThat((Long) attribute.get("residentSetBytes"), is(Matchers.greaterThan(0L)));
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void publishesUnknownProcessStatisticsWhenSamplingIsDisabled() throws IOException, InterruptedException {
+		server.start();
+		assertThat(server.processStatistics().getResidentSetBytes(), is(-1L));
+	}
+
+	@Test
+	public void doesNotPublishInfoStatisticsWhenSamplingIsDisabled() throws IOException, InterruptedException {
+		server.start();
+		assertThat(server.getUsedMemory(), is(-1L));
+	}
+
 	private void invokeMBeanOperation(String operation) throws ReflectionException, InstanceNotFoundException, MBeanException {
 		mBeanServer.invoke(objectName, operation, new Object[0], new String[0]);
 	}
@@ -490,6 +734,218 @@ public final class LocalRedisServerTest {
 		}
 	}
 
+	@Test
+	public void startsServerOnUnixSocket() throws IOException, InterruptedException {
+		Path unixSocket = Files.createTempDirectory("redislauncher").resolve("redis.sock");
+		LocalRedisServer server = new LocalRedisServer(anExecution()
+				.withConfiguration(programmaticConfiguration().withPort(6380).withUnixSocket(unixSocket).build())
+				.build());
+		try {
+			server.start();
+			assertThat(server.getUnixSocket(), is(unixSocket));
+			assertThat(pingOverUnixSocket(unixSocket), is("+PONG\r\n"));
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void executesCommand() throws IOException, InterruptedException {
+		server.start();
+		server.execute("SET", "key", "value");
+		assertThat(server.execute("GET", "key"), is("value"));
+		assertThat(server.execute("GET", "missing"), is(nullValue()));
+		assertThat(server.execute("INCR", "counter"), is("1"));
+	}
+
+	@Test
+	public void flattensAggregateReply() throws IOException, InterruptedException {
+		server.start();
+		server.execute("RPUSH", "list", "a", "b");
+		assertThat(server.execute("LRANGE", "list", "0", "-1"), is("a\nb"));
+	}
+
+	@Test(expected=ErrorReplyException.class)
+	public void throwsErrorReplyExceptionWhenServerRepliesWithError() throws IOException, InterruptedException {
+		server.start();
+		server.execute("NOSUCHCOMMAND");
+	}
+
+	@Test
+	public void canExecuteCommandAfterErrorReply() throws IOException, InterruptedException {
+		server.start();
+		try {
+			server.execute("NOSUCHCOMMAND");
+			fail("Expected ErrorReplyException");
+		} catch (ErrorReplyException e) {
+			assertThat(server.execute("PING"), is("PONG"));
+		}
+	}
+
+	@Test
+	public void executesPipelineOfCommands() throws IOException, InterruptedException {
+		server.start();
+		List<String[]> commands = new ArrayList<String[]>();
+		for (int i = 0; i < 3000; i++) {
+			commands.add(new String[] {"SET", "key" + i, "value" + i});
+		}
+		server.executeAll(commands);
+		assertThat(server.execute("DBSIZE"), is("3000"));
+		assertThat(server.execute("GET", "key2999"), is("value2999"));
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void cannotExecuteCommandWhenServerNotStarted() throws IOException {
+		server.execute("PING");
+	}
+
+	@Test
+	public void restoresCheckpointedDataset() throws IOException, InterruptedException {
+		server.start();
+		server.execute("SET", "key", "value");
+		server.execute("SET", "expiring", "value", "PX", "600000");
+		server.execute("SELECT", "1");
+		server.execute("RPUSH", "list", "a", "b");
+		server.execute("SELECT", "0");
+		server.checkpoint();
+
+		server.execute("SET", "key", "changed");
+		server.execute("DEL", "expiring");
+		server.execute("SET", "added", "value");
+		server.restore();
+
+		assertThat(server.execute("GET", "key"), is("value"));
+		assertThat(Long.parseLong(server.execute("PTTL", "expiring")), is(Matchers.greaterThan(0L)));
+		assertThat(server.execute("EXISTS", "added"), is("0"));
+		server.execute("SELECT", "1");
+		assertThat(server.execute("LRANGE", "list", "0", "-1"), is("a\nb"));
+	}
+
+	@Test
+	public void restoresCheckpointAfterRestart() throws IOException, InterruptedException {
+		server.start();
+		List<String[]> commands = new ArrayList<String[]>();
+		for (int i = 0; i < 2500; i++) {
+			commands.add(new String[] {"SET", "key" + i, "value" + i});
+		}
+		server.executeAll(commands);
+		server.checkpoint();
+		server.stop();
+		server.start();
+		server.restore();
+		assertThat(server.execute("DBSIZE"), is("2500"));
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void cannotRestoreWithoutCheckpoint() throws IOException, InterruptedException {
+		server.start();
+		server.restore();
+	}
+
+	@Test
+	public void loadsInitialDataset() throws IOException, InterruptedException {
+		Path directory = Files.createTempDirectory("redislauncher");
+		LocalRedisServer source = new LocalRedisServer(anExecution()
+				.withConfiguration(programmaticConfiguration()
+						.withProperty("dir", directory.toString())
+						.withProperty("dbfilename", "fixtures.rdb")
+						.withPort(6380)
+						.build())
+				.build());
+		try {
+			source.start();
+			source.execute("SET", "key", "value");
+			source.execute("SAVE");
+		} finally {
+			source.stop();
+		}
+
+		LocalRedisServer server = new LocalRedisServer(anExecution()
+				.withConfiguration(programmaticConfiguration()
+						.withInitialDataset(directory.resolve("fixtures.rdb"))
+						.withPort(6380)
+						.build())
+				.build());
+		try {
+			server.start();
+			assertThat(server.execute("GET", "key"), is("value"));
+			server.execute("SET", "key", "changed");
+			server.stop();
+			server.start();
+			assertThat(server.execute("GET", "key"), is("value"));
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void doesNotSaveDatasetWhenStoppedInNoSaveMode() throws IOException, InterruptedException {
+		server.start();
+		server.execute("SET", "key", "value");
+		server.stop(StopMode.NOSAVE);
+		assertThat(new File("dump.rdb").exists(), is(false));
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void savesDatasetWhenStoppedInSaveMode() throws IOException, InterruptedException {
+		server.start();
+		server.execute("SET", "key", "value");
+		server.stop(StopMode.SAVE);
+		assertSavedDatasetIsLoaded();
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void savesDatasetInBackgroundWhenStoppedInBackgroundSaveMode() throws IOException, InterruptedException {
+		server.start();
+		server.execute("SET", "key", "value");
+		server.stop(StopMode.BACKGROUND_SAVE);
+		assertSavedDatasetIsLoaded();
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void shutsDownAndCallsLifecyclePolicyOnceWhenBackgroundSaveFails()
+			throws IOException, InterruptedException {
+		final LocalRedisServer server = new LocalRedisServer(execution, ConnectionProperties.DEFAULT,
+				mockLifecyclePolicy);
+
+		allowingMockLifecyclePolicyReturnsNullProcessDestroyer();
+		context.checking(new Expectations() {{
+			oneOf(mockLifecyclePolicy).failedToStop(with(server), with(Matchers.<Throwable>instanceOf(IOException.class)));
+		}});
+
+		Path directory = Files.createTempDirectory("redislauncher");
+		try {
+			server.start();
+			server.execute("CONFIG", "SET", "dir", directory.toString());
+			Files.delete(directory);
+			server.stop(StopMode.BACKGROUND_SAVE);
+		} finally {
+			server.destroy();
+		}
+	}
+
+	private void assertSavedDatasetIsLoaded() throws IOException, InterruptedException {
+		try {
+			server.start();
+			assertThat(server.execute("GET", "key"), is("value"));
+		} finally {
+			server.stop(StopMode.NOSAVE);
+			deleteDatastore();
+		}
+	}
+
+	private String pingOverUnixSocket(Path unixSocket) throws IOException {
+		SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(unixSocket));
+		try {
+			channel.write(ByteBuffer.wrap("PING\r\n".getBytes(StandardCharsets.UTF_8)));
+			ByteBuffer reply = ByteBuffer.allocate(7);
+			while (reply.hasRemaining() && channel.read(reply) != -1) { }
+			return new String(reply.array(), StandardCharsets.UTF_8);
+		} finally {
+			channel.close();
+		}
+	}
+
 	private void pingServer() {
 		pingAndDisconnect(new Jedis("localhost"));
 	}
@@ -0,0 +1,94 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.junit.Test;
+
+import uk.co.datumedge.redislauncher.ProcessSampler.File;
+import uk.co.datumedge.redislauncher.ProcessSampler.Statistic;
+
+public final class ProcessSamplerTest {
+	private static final String STAT = "4242 (redis (server) 1) S 1 4242 4242 0 -1 4194560 1523 0 7 0 "
+			+ "250 31 0 0 20 0 5 0 123456 72777728 2345 18446744073709551615 1 1 0 0 0 0 0 4097 17642 0 0 0 17 0 0 0 "
+			+ "0 0 0 0 0 0 0 0 0 0 0\n";
+	private static final String STATUS = "Name:\tredis-server\n"
+			+ "State:\tS (sleeping)\n"
+			+ "VmHWM:\t   10240 kB\n"
+			+ "VmRSS:\t    9380 kB\n"
+			+ "Threads:\t5\n"
+			+ "voluntary_ctxt_switches:\t812\n"
+			+ "nonvoluntary_ctxt_switches:\t19\n";
+	private static final String IO = "rchar: 5231\n"
+			+ "wchar: 10422\n"
+			+ "syscr: 33\n"
+			+ "syscw: 12\n"
+			+ "read_bytes: 4096\n"
+			+ "write_bytes: 8192\n"
+			+ "cancelled_write_bytes: 0\n";
+
+	private final AtomicLongArray values = new AtomicLongArray(Statistic.values().length);
+
+	@Test
+	public void parsesStatCountingFieldsFromEndOfProcessName() {
+		ProcessSampler.parse(File.STAT, buffer(STAT), values);
+		assertThat(value(Statistic.MINOR_PAGE_FAULTS), is(1523L));
+		assertThat(value(Statistic.MAJOR_PAGE_FAULTS), is(7L));
+		assertThat(value(Statistic.USER_CPU_TIME_MILLIS), is(2500L));
+		assertThat(value(Statistic.SYSTEM_CPU_TIME_MILLIS), is(310L));
+	}
+
+	@Test
+	public void parsesStatus() {
+		ProcessSampler.parse(File.STATUS, buffer(STATUS), values);
+		assertThat(value(Statistic.PEAK_RESIDENT_SET_BYTES), is(10240L * 1024));
+		assertThat(value(Statistic.RESIDENT_SET_BYTES), is(9380L * 1024));
+		assertThat(value(Statistic.THREADS), is(5L));
+		assertThat(value(Statistic.VOLUNTARY_CONTEXT_SWITCHES), is(812L));
+		assertThat(value(Statistic.INVOLUNTARY_CONTEXT_SWITCHES), is(19L));
+	}
+
+	@Test
+	public void parsesIo() {
+		ProcessSampler.parse(File.IO, buffer(IO), values);
+		assertThat(value(Statistic.READ_BYTES), is(4096L));
+		assertThat(value(Statistic.WRITE_BYTES), is(8192L));
+	}
+
+	@Test
+	public void keepsPreviousValueOfMalformedStatistic() {
+		values.set(Statistic.THREADS.ordinal(), 4);
+		ProcessSampler.parse(File.STATUS, buffer("Threads:\tmany\n"), values);
+		assertThat(value(Statistic.THREADS), is(4L));
+	}
+
+	@Test
+	public void samplesRunningProcessRepeatedly() {
+		long pid = ProcessHandle.current().pid();
+		ProcessSampler sampler = new ProcessSampler(() -> pid, 60000);
+		sampler.start();
+		try {
+			// the first sample opens the files, and the second reads them again from the start
+			sampler.sample();
+			sampler.sample();
+			ProcessStatistics statistics = sampler.snapshot();
+			assertThat(statistics.getResidentSetBytes(), is(greaterThan(0L)));
+			assertThat(statistics.getThreads(), is(greaterThan(0L)));
+		} finally {
+			sampler.stop();
+		}
+	}
+
+	private long value(Statistic statistic) {
+		return values.get(statistic.ordinal());
+	}
+
+	private static ByteBuffer buffer(String contents) {
+		return ByteBuffer.wrap(contents.getBytes(StandardCharsets.US_ASCII));
+	}
+}
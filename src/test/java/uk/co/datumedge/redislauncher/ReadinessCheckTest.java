@@ -0,0 +1,86 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public final class ReadinessCheckTest {
+	private static final ReadinessCheck PASSES = connection -> true;
+	private static final ReadinessCheck FAILS = connection -> false;
+	private static final ReadinessCheck LOADING = connection -> {
+		throw new ErrorReplyException("LOADING Redis is loading the dataset in memory");
+	};
+
+	private final Map<String, String> replies = new HashMap<>();
+	private final ReadinessCheck.Connection connection = command -> replies.get(String.join(" ", command));
+
+	@Test
+	public void pingPassesWhenServerRepliesPong() throws IOException {
+		replies.put("PING", "PONG");
+		assertThat(ReadinessCheck.ping().isReady(connection), is(true));
+	}
+
+	@Test
+	public void loadingCompletePassesOnlyWhenNotLoading() throws IOException {
+		replies.put("INFO persistence", "# Persistence\r\nloading:1\r\nrdb_changes_since_last_save:0\r\n");
+		assertThat(ReadinessCheck.loadingComplete().isReady(connection), is(false));
+		replies.put("INFO persistence", "# Persistence\r\nloading:0\r\nrdb_changes_since_last_save:0\r\n");
+		assertThat(ReadinessCheck.loadingComplete().isReady(connection), is(true));
+	}
+
+	@Test
+	public void replicationLinkUpPassesForMaster() throws IOException {
+		replies.put("INFO replication", "# Replication\r\nrole:master\r\nconnected_slaves:0\r\n");
+		assertThat(ReadinessCheck.replicationLinkUp().isReady(connection), is(true));
+	}
+
+	@Test
+	public void replicationLinkUpPassesOnlyForReplicaWithLinkUp() throws IOException {
+		replies.put("INFO replication", "# Replication\r\nrole:slave\r\nmaster_link_status:down\r\n");
+		assertThat(ReadinessCheck.replicationLinkUp().isReady(connection), is(false));
+		replies.put("INFO replication", "# Replication\r\nrole:slave\r\nmaster_link_status:up\r\n");
+		assertThat(ReadinessCheck.replicationLinkUp().isReady(connection), is(true));
+	}
+
+	@Test
+	public void clusterStateOkPassesOnlyWhenClusterStateIsOk() throws IOException {
+		replies.put("CLUSTER INFO", "cluster_state:fail\r\ncluster_slots_assigned:0\r\n");
+		assertThat(ReadinessCheck.clusterStateOk().isReady(connection), is(false));
+		replies.put("CLUSTER INFO", "cluster_state:ok\r\ncluster_slots_assigned:16384\r\n");
+		assertThat(ReadinessCheck.clusterStateOk().isReady(connection), is(true));
+	}
+
+	@Test
+	public void moduleLoadedPassesOnlyWhenModuleIsListed() throws IOException {
+		replies.put("MODULE LIST", "name\nsearch\nver\n20000");
+		assertThat(ReadinessCheck.moduleLoaded("search").isReady(connection), is(true));
+		assertThat(ReadinessCheck.moduleLoaded("ReJSON").isReady(connection), is(false));
+	}
+
+	@Test
+	public void allOfPassesOnlyWhenEveryCheckPasses() throws IOException {
+		assertThat(ReadinessCheck.allOf(PASSES, PASSES).isReady(connection), is(true));
+		assertThat(PASSES.and(FAILS).isReady(connection), is(false));
+	}
+
+	@Test
+	public void anyOfPassesWhenOneCheckPasses() throws IOException {
+		assertThat(ReadinessCheck.anyOf(FAILS, PASSES).isReady(connection), is(true));
+		assertThat(FAILS.or(FAILS).isReady(connection), is(false));
+	}
+
+	@Test
+	public void anyOfPassesDespiteErrorFromAnotherCheck() throws IOException {
+		assertThat(LOADING.or(PASSES).isReady(connection), is(true));
+	}
+
+	@Test(expected=ErrorReplyException.class)
+	public void anyOfThrowsErrorWhenNoCheckPasses() throws IOException {
+		LOADING.or(FAILS).isReady(connection);
+	}
+}
@@ -0,0 +1,75 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+public final class ReadyMessageDetectorTest {
+	private static final String READY_LINE = "1:M 01 Jan 2000 00:00:00.000 * Ready to accept connections\n";
+	private final ByteArrayOutputStream delegate = new ByteArrayOutputStream();
+	private final ReadyMessageDetector detector = new ReadyMessageDetector(delegate);
+
+	@Test
+	public void isReadyWhenReadyMessageIsWritten() throws IOException {
+		write(READY_LINE);
+		assertThat(detector.isReady(), is(true));
+	}
+
+	@Test
+	public void isReadyWhenLegacyReadyMessageIsWritten() throws IOException {
+		write("[1] 01 Jan 00:00:00 * The server is now ready to accept connections on port 6379\n");
+		assertThat(detector.isReady(), is(true));
+	}
+
+	@Test
+	public void isReadyWhenReadyMessageIsSplitAcrossWrites() throws IOException {
+		write("* Ready to acc");
+		write("ept connections\n");
+		assertThat(detector.isReady(), is(true));
+	}
+
+	@Test
+	public void isNotReadyUntilReadyMessageIsWritten() throws IOException {
+		write("* Server initialized\n* Loading RDB produced by version 6.2.6\n* Ready to accept\n");
+		assertThat(detector.isReady(), is(false));
+	}
+
+	@Test
+	public void forwardsBytesToDelegate() throws IOException {
+		write(READY_LINE);
+		assertThat(new String(delegate.toByteArray(), "UTF-8"), is(equalTo(READY_LINE)));
+	}
+
+	@Test
+	public void acceptsNullDelegate() throws IOException {
+		ReadyMessageDetector detector = new ReadyMessageDetector(null);
+		detector.write(READY_LINE.getBytes(Charset.forName("UTF-8")));
+		assertThat(detector.isReady(), is(true));
+	}
+
+	@Test(timeout=1000)
+	public void pauseReturnsEarlyOnceReady() throws IOException, InterruptedException {
+		write(READY_LINE);
+		long before = System.nanoTime();
+		detector.pause(60000);
+		assertThat(System.nanoTime() - before, is(lessThan(1000000000L)));
+	}
+
+	@Test(timeout=1000)
+	public void awaitReadyReturnsEarlyEveryTimeOnceReady() throws IOException, InterruptedException {
+		write(READY_LINE);
+		detector.awaitReady(60000);
+		detector.awaitReady(60000);
+	}
+
+	private void write(String string) throws IOException {
+		detector.write(string.getBytes(Charset.forName("UTF-8")));
+	}
+}
@@ -0,0 +1,92 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class RedisControlConnectionTest {
+	private ServerSocket serverSocket;
+	private RedisControlConnection connection;
+	private Socket peer;
+
+	@Before
+	public void connect() throws IOException {
+		serverSocket = new ServerSocket(0);
+		connection = RedisControlConnection.open(serverSocket.getLocalSocketAddress());
+		peer = serverSocket.accept();
+	}
+
+	@After
+	public void close() throws IOException {
+		connection.close();
+		peer.close();
+		serverSocket.close();
+	}
+
+	@Test
+	public void encodesCommandsAsArraysOfBulkStrings() throws IOException {
+		connection.append("SET", "key", "").append("PING").flush();
+		assertThat(received(42), is(equalTo("*3\r\n$3\r\nSET\r\n$3\r\nkey\r\n$0\r\n\r\n*1\r\n$4\r\nPING\r\n")));
+	}
+
+	@Test
+	public void encodesArgumentsLongerThanItsBuffer() throws IOException {
+		char[] argument = new char[10000];
+		Arrays.fill(argument, 'x');
+		connection.append("SET", "k", new String(argument)).flush();
+		String received = received(10030);
+		assertThat(received.startsWith("*3\r\n$3\r\nSET\r\n$1\r\nk\r\n$10000\r\nxxx"), is(true));
+		assertThat(received.endsWith("xxx\r\n"), is(true));
+	}
+
+	@Test
+	public void doesNotSendUntilFlushed() throws IOException {
+		connection.append("PING");
+		assertThat(peer.getInputStream().available(), is(0));
+	}
+
+	@Test(expected=ErrorReplyException.class)
+	public void throwsErrorReplyExceptionForErrorReply() throws IOException {
+		send("-ERR unknown command\r\n");
+		connection.execute("FOO");
+	}
+
+	@Test
+	public void readsEveryReplyBeforeReportingError() throws IOException {
+		send("+OK\r\n-ERR wrong type\r\n*1\r\n+a\r\n+PONG\r\n");
+		try {
+			connection.awaitReplies(3);
+			fail("Expected ErrorReplyException");
+		} catch (ErrorReplyException e) {
+			assertThat(e.getMessage(), is("ERR wrong type"));
+		}
+		assertThat(connection.nextReply().contentAsString(), is("PONG"));
+	}
+
+	private void send(String replies) throws IOException {
+		peer.getOutputStream().write(replies.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private String received(int length) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[length];
+		while (bytes.size() < length) {
+			int read = peer.getInputStream().read(buffer, 0, length - bytes.size());
+			if (read == -1) break;
+			bytes.write(buffer, 0, read);
+		}
+		return bytes.toString("UTF-8");
+	}
+}
@@ -0,0 +1,83 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.fail;
+import static uk.co.datumedge.redislauncher.Configuration.programmaticConfiguration;
+import static uk.co.datumedge.redislauncher.Configuration.staticConfiguration;
+import static uk.co.datumedge.redislauncher.Execution.anExecution;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.exec.CommandLine;
+import org.junit.After;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+public final class RedisServerGroupTest {
+	private static final int TIMEOUT = 60000;
+	private final LocalRedisServer first = serverOnPort(6391);
+	private final LocalRedisServer second = serverOnPort(6392);
+	private final RedisServerGroup group = new RedisServerGroup(first, second);
+
+	@After
+	public void stopGroup() throws IOException, InterruptedException {
+		try {
+			group.stop();
+		} finally {
+			group.destroy();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void startsEveryServer() throws IOException, InterruptedException {
+		group.start();
+		assertThat(ping(6391), is("PONG"));
+		assertThat(ping(6392), is("PONG"));
+	}
+
+	@Test(timeout=TIMEOUT, expected=JedisConnectionException.class)
+	public void stopsEveryServer() throws IOException, InterruptedException {
+		group.start();
+		group.stop();
+		ping(6391);
+	}
+
+	@Test(timeout=TIMEOUT, expected=JedisConnectionException.class)
+	public void stopsStartedServersWhenAnotherFailsToStart() throws IOException, InterruptedException {
+		LocalRedisServer invalid = new LocalRedisServer(anExecution()
+				.withConfiguration(staticConfiguration().withCommandLine(new CommandLine("java")).build())
+				.build());
+		try {
+			new RedisServerGroup(first, invalid).start();
+			fail("Expected ConnectException");
+		} catch (ConnectException e) {
+			ping(6391);
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void startAsyncCompletesWhenServerIsReady() throws InterruptedException, ExecutionException {
+		first.startAsync().get();
+		assertThat(ping(6391), is("PONG"));
+	}
+
+	private static LocalRedisServer serverOnPort(int port) {
+		return new LocalRedisServer(anExecution()
+				.withConfiguration(programmaticConfiguration().withPort(port).build())
+				.build());
+	}
+
+	private static String ping(int port) {
+		Jedis jedis = new Jedis("localhost", port);
+		try {
+			return jedis.ping();
+		} finally {
+			jedis.disconnect();
+		}
+	}
+}
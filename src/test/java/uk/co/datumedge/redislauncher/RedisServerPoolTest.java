@@ -0,0 +1,120 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.fail;
+import static uk.co.datumedge.redislauncher.RedisServerPool.aRedisServerPool;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+
+public final class RedisServerPoolTest {
+	private static final int TIMEOUT = 60000;
+	private final RedisServerPool pool = aRedisServerPool().withSize(2).build();
+
+	@After
+	public void closePool() throws IOException {
+		pool.close();
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void acquiresStartedServer() throws IOException, InterruptedException {
+		LocalRedisServer server = pool.acquire();
+		Jedis jedis = new Jedis("localhost", server.getPort());
+		try {
+			assertThat(jedis.ping(), is("PONG"));
+		} finally {
+			jedis.disconnect();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void acquiresServersOnDistinctPorts() throws IOException, InterruptedException {
+		LocalRedisServer first = pool.acquire();
+		LocalRedisServer second = pool.acquire();
+		assertThat(first.getPort(), is(not(second.getPort())));
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void returnsNullWhenNoServerBecomesAvailable() throws IOException, InterruptedException {
+		pool.acquire();
+		pool.acquire();
+		assertThat(pool.acquire(10, TimeUnit.MILLISECONDS), is(nullValue()));
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void flushesServerOnRelease() throws IOException, InterruptedException {
+		LocalRedisServer server = pool.acquire();
+		Jedis jedis = new Jedis("localhost", server.getPort());
+		try {
+			jedis.set("key", "value");
+			pool.release(server);
+			assertThat(jedis.get("key"), is(nullValue()));
+		} finally {
+			jedis.disconnect();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void canAcquireReleasedServer() throws IOException, InterruptedException {
+		pool.acquire();
+		LocalRedisServer server = pool.acquire();
+		pool.release(server);
+		assertThat(pool.acquire(), is(server));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void doesNotAcceptServerFromElsewhere() {
+		pool.release(new LocalRedisServer(Execution.anExecution().build()));
+	}
+
+	@Test(timeout=TIMEOUT, expected=IllegalStateException.class)
+	public void doesNotAcceptServerReleasedTwice() throws IOException, InterruptedException {
+		LocalRedisServer server = pool.acquire();
+		pool.release(server);
+		pool.release(server);
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void closeWakesThreadWaitingToAcquire() throws Exception {
+		pool.acquire();
+		pool.acquire();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<LocalRedisServer> waiting = executor.submit(new Callable<LocalRedisServer>() {
+				@Override
+				public LocalRedisServer call() throws IOException, InterruptedException {
+					return pool.acquire();
+				}
+			});
+			pool.close();
+			try {
+				waiting.get();
+				fail("Expected IllegalStateException");
+			} catch (ExecutionException e) {
+				assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void cannotAcquireFromClosedPool() throws IOException, InterruptedException {
+		pool.close();
+		pool.acquire();
+	}
+}
@@ -0,0 +1,59 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static uk.co.datumedge.redislauncher.ReplicatedRedisServer.aReplicatedRedisServer;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Test;
+
+public final class ReplicatedRedisServerTest {
+	private static final int TIMEOUT = 60000;
+	private final ReplicatedRedisServer server = aReplicatedRedisServer().withReplicas(2).build();
+
+	@After
+	public void stopServer() throws IOException, InterruptedException {
+		try {
+			server.stop();
+		} finally {
+			server.destroy();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void startsWithEveryReplicaLinkedToMaster() throws IOException, InterruptedException {
+		server.start();
+		assertThat(server.master().execute("INFO", "replication"), containsString("connected_slaves:2"));
+		for (LocalRedisServer replica : server.replicas()) {
+			assertThat(replica.execute("INFO", "replication"), containsString("master_link_status:up"));
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void awaitsReplicationOfWrites() throws IOException, InterruptedException {
+		server.start();
+		server.master().execute("SET", "key", "value");
+		server.awaitReplication();
+		for (LocalRedisServer replica : server.replicas()) {
+			assertThat(replica.execute("GET", "key"), is("value"));
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void keepsSnapshotsOutOfWorkingDirectory() throws IOException, InterruptedException {
+		server.start();
+		assertThat(new File("replicated-" + server.master().getPort() + ".rdb").exists(), is(false));
+		for (LocalRedisServer replica : server.replicas()) {
+			assertThat(new File("replicated-" + replica.getPort() + ".rdb").exists(), is(false));
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void rejectsNegativeNumberOfReplicas() {
+		aReplicatedRedisServer().withReplicas(-1).build();
+	}
+}
@@ -4,26 +4,159 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
 
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 public final class ReplyTest {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	@Test
+	public void matchesReplyWithoutCarriageReturnAndNewLineCharacters() throws IOException {
+		Reply reply = new Reply(channelFor("+PONG\r\n"));
+		Assert.assertThat(reply.next(), is(Reply.Type.SIMPLE_STRING));
+		Assert.assertThat(reply.matches(bytes("+PONG")), is(true));
+	}
+
+	@Test
+	public void doesNotMatchDifferentReply() throws IOException {
+		Reply reply = new Reply(channelFor("+PONGS\r\n"));
+		reply.next();
+		Assert.assertThat(reply.matches(bytes("+PONG")), is(false));
+	}
+
+	@Test(expected=EOFException.class)
+	public void throwsEOFExceptionWhenEndOfStreamIsReached() throws IOException {
+		new Reply(channelFor("FOO")).next();
+	}
+
+	@Test
+	public void parsesError() throws IOException {
+		Reply reply = new Reply(channelFor("-LOADING Redis is loading the dataset in memory\r\n"));
+		Assert.assertThat(reply.next(), is(Reply.Type.ERROR));
+		Assert.assertThat(reply.contentStartsWith(bytes("LOADING")), is(true));
+	}
+
+	@Test
+	public void parsesInteger() throws IOException {
+		Reply reply = new Reply(channelFor(":-1234\r\n"));
+		Assert.assertThat(reply.next(), is(Reply.Type.INTEGER));
+		Assert.assertThat(reply.integer(), is(-1234L));
+	}
+
+	@Test
+	public void parsesBulkString() throws IOException {
+		Reply reply = new Reply(channelFor("$12\r\nhello\r\nworld\r\n"));
+		Assert.assertThat(reply.next(), is(Reply.Type.BULK_STRING));
+		Assert.assertThat(reply.contentAsString(), is(equalTo("hello\r\nworld")));
+	}
+
+	@Test
+	public void parsesNullBulkString() throws IOException {
+		Reply reply = new Reply(channelFor("$-1\r\n"));
+		Assert.assertThat(reply.next(), is(Reply.Type.BULK_STRING));
+		Assert.assertThat(reply.isNull(), is(true));
+	}
+
 	@Test
-	public void returnsReplyWithoutCarriageReturnAndNewLineCharacters() throws IOException {
-		Reply reply = new Reply(inputStreamFor("+PONG\r\n"));
-		Assert.assertThat(reply.parse(), is(equalTo("+PONG")));
+	public void parsesArrayElementsInOrder() throws IOException {
+		Reply reply = new Reply(channelFor("*2\r\n$1\r\na\r\n:2\r\n"));
+		Assert.assertThat(reply.next(), is(Reply.Type.ARRAY));
+		Assert.assertThat(reply.size(), is(2L));
+		Assert.assertThat(reply.next(), is(Reply.Type.BULK_STRING));
+		Assert.assertThat(reply.contentAsString(), is(equalTo("a")));
+		Assert.assertThat(reply.next(), is(Reply.Type.INTEGER));
+		Assert.assertThat(reply.integer(), is(2L));
 	}
 
 	@Test
-	public void returnsStringWhenEndOfStreamIsReached() throws IOException {
-		Reply reply = new Reply(inputStreamFor("FOO"));
-		Assert.assertThat(reply.parse(), is(equalTo("FOO")));
+	public void skipsNestedElements() throws IOException {
+		Reply reply = new Reply(channelFor("*2\r\n*1\r\n+a\r\n%1\r\n+k\r\n+v\r\n+next\r\n"));
+		reply.next();
+		reply.skipElements();
+		reply.next();
+		Assert.assertThat(reply.matches(bytes("+next")), is(true));
 	}
 
-	private ByteArrayInputStream inputStreamFor(String string) {
-		return new ByteArrayInputStream(string.getBytes(Charset.forName("UTF-8")));
+	@Test
+	public void parsesResp3Types() throws IOException {
+		Reply reply = new Reply(channelFor("_\r\n#t\r\n,3.14\r\n(12345678901234567890\r\n=8\r\ntxt:abcd\r\n~0\r\n>0\r\n"));
+		Assert.assertThat(reply.next(), is(Reply.Type.NULL));
+		Assert.assertThat(reply.isNull(), is(true));
+		Assert.assertThat(reply.next(), is(Reply.Type.BOOLEAN));
+		Assert.assertThat(reply.next(), is(Reply.Type.DOUBLE));
+		Assert.assertThat(reply.contentAsString(), is(equalTo("3.14")));
+		Assert.assertThat(reply.next(), is(Reply.Type.BIG_NUMBER));
+		Assert.assertThat(reply.next(), is(Reply.Type.VERBATIM_STRING));
+		Assert.assertThat(reply.contentAsString(), is(equalTo("txt:abcd")));
+		Assert.assertThat(reply.next(), is(Reply.Type.SET));
+		Assert.assertThat(reply.next(), is(Reply.Type.PUSH));
+	}
+
+	@Test
+	public void parsesRepliesDeliveredOneByteAtATime() throws IOException {
+		Reply reply = new Reply(oneByteAtATime("+OK\r\n$3\r\nfoo\r\n"));
+		reply.next();
+		Assert.assertThat(reply.matches(bytes("+OK")), is(true));
+		reply.next();
+		Assert.assertThat(reply.contentAsString(), is(equalTo("foo")));
+	}
+
+	@Test
+	public void growsBufferForRepliesLargerThanItsCapacity() throws IOException {
+		Reply reply = new Reply(channelFor("+OK\r\n$10\r\n0123456789\r\n+AFTER\r\n"), 4);
+		reply.next();
+		reply.next();
+		Assert.assertThat(reply.contentAsString(), is(equalTo("0123456789")));
+		reply.next();
+		Assert.assertThat(reply.matches(bytes("+AFTER")), is(true));
+	}
+
+	@Test
+	public void providesContentView() throws IOException {
+		Reply reply = new Reply(channelFor("$3\r\nfoo\r\n"));
+		reply.next();
+		ByteBuffer content = reply.content();
+		Assert.assertThat(content.remaining(), is(3));
+		Assert.assertThat(content.get(), is((byte) 'f'));
+	}
+
+	@Test(expected=IOException.class)
+	public void rejectsUnknownReplyType() throws IOException {
+		new Reply(channelFor("?\r\n")).next();
+	}
+
+	private static byte[] bytes(String string) {
+		return string.getBytes(UTF8);
+	}
+
+	private static ReadableByteChannel channelFor(String string) {
+		return Channels.newChannel(new ByteArrayInputStream(bytes(string)));
+	}
+
+	private static ReadableByteChannel oneByteAtATime(String string) {
+		final ByteBuffer source = ByteBuffer.wrap(bytes(string));
+		return new ReadableByteChannel() {
+			@Override
+			public int read(ByteBuffer destination) {
+				if (!source.hasRemaining()) return -1;
+				destination.put(source.get());
+				return 1;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() { }
+		};
 	}
 }
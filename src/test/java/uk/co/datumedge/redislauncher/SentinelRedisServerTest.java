@@ -0,0 +1,58 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+import static uk.co.datumedge.redislauncher.SentinelRedisServer.aSentinelRedisServer;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Test;
+
+public final class SentinelRedisServerTest {
+	private static final int TIMEOUT = 60000;
+	private static final long DOWN_AFTER_MILLIS = 500;
+	private final SentinelRedisServer server = aSentinelRedisServer()
+			.withReplicas(2)
+			.withSentinels(3)
+			.withDownAfterMillis(DOWN_AFTER_MILLIS)
+			.build();
+
+	@After
+	public void stopServer() throws IOException, InterruptedException {
+		try {
+			server.stop();
+		} finally {
+			server.destroy();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void startsSentinelsMonitoringMaster() throws IOException, InterruptedException {
+		server.start();
+		for (LocalRedisServer sentinel : server.sentinels()) {
+			assertThat(sentinel.execute("SENTINEL", "GET-MASTER-ADDR-BY-NAME", server.masterName()),
+					is("127.0.0.1\n" + server.master().getPort()));
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void promotesReplicaWhenFailoverIsTriggered() throws IOException, InterruptedException {
+		server.start();
+		LocalRedisServer failed = server.master();
+		long failoverMillis = server.triggerFailover();
+
+		assertThat(failoverMillis, greaterThanOrEqualTo(DOWN_AFTER_MILLIS));
+		assertThat(server.master(), not(sameInstance(failed)));
+		assertThat(server.master().execute("INFO", "replication"), containsString("role:master"));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void rejectsQuorumLargerThanNumberOfSentinels() {
+		aSentinelRedisServer().withSentinels(3).withQuorum(4).build();
+	}
+}
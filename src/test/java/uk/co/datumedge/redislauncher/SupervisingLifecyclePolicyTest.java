@@ -0,0 +1,99 @@
+package uk.co.datumedge.redislauncher;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static uk.co.datumedge.redislauncher.Configuration.programmaticConfiguration;
+import static uk.co.datumedge.redislauncher.Execution.anExecution;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.exec.ShutdownHookProcessDestroyer;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JMock.class)
+public final class SupervisingLifecyclePolicyTest {
+	private static final int TIMEOUT = 30000;
+	private static final Throwable IGNORED_CAUSE = null;
+	private final Mockery context = new JUnit4Mockery();
+	private final RedisServer server = context.mock(RedisServer.class);
+	private final SupervisingLifecyclePolicy lifecyclePolicy = new SupervisingLifecyclePolicy(100, 1000);
+
+	@Test
+	public void destroysServerOnFailureToStop() {
+		context.checking(new Expectations() {{
+			oneOf(server).destroy();
+		}});
+		lifecyclePolicy.failedToStop(server, IGNORED_CAUSE);
+	}
+
+	@Test
+	public void doesNothingOnFailureToStart() {
+		lifecyclePolicy.failedToStart(server);
+	}
+
+	@Test
+	public void providesShutdownHookProcessDestroyer() {
+		assertThat(lifecyclePolicy.getProcessDestroyer(), is(instanceOf(ShutdownHookProcessDestroyer.class)));
+	}
+
+	@Test
+	public void restartsImmediatelyThenBacksOffExponentiallyUpToMaximum() {
+		assertThat(lifecyclePolicy.backoffMillis(0), is(0L));
+		assertThat(lifecyclePolicy.backoffMillis(1), is(100L));
+		assertThat(lifecyclePolicy.backoffMillis(2), is(200L));
+		assertThat(lifecyclePolicy.backoffMillis(4), is(800L));
+		assertThat(lifecyclePolicy.backoffMillis(5), is(1000L));
+		assertThat(lifecyclePolicy.backoffMillis(Integer.MAX_VALUE), is(1000L));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void rejectsMaximumBackoffLessThanInitialBackoff() {
+		new SupervisingLifecyclePolicy(100, 99);
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void restartsServerWhoseProcessWasKilled() throws IOException, InterruptedException {
+		LocalRedisServer redisServer = supervisedServer();
+		try {
+			redisServer.start();
+			long pid = redisServer.getPid();
+			ProcessHandle.of(pid).get().destroyForcibly();
+
+			while (redisServer.getRestartCount() == 0) {
+				TimeUnit.MILLISECONDS.sleep(10);
+			}
+			assertThat(redisServer.execute("PING"), is("PONG"));
+			assertThat(redisServer.getUnexpectedExitCount(), is(1L));
+			assertThat(redisServer.getDowntime().get("count"), is((Object) 1L));
+		} finally {
+			redisServer.stop();
+		}
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void doesNotRestartDestroyedServer() throws IOException, InterruptedException {
+		LocalRedisServer redisServer = supervisedServer();
+		try {
+			redisServer.start();
+			redisServer.destroy();
+			TimeUnit.MILLISECONDS.sleep(500);
+			assertThat(redisServer.getPid(), is(-1L));
+			assertThat(redisServer.getUnexpectedExitCount(), is(0L));
+		} finally {
+			redisServer.stop();
+		}
+	}
+
+	private LocalRedisServer supervisedServer() {
+		Configuration configuration = programmaticConfiguration().withEphemeralPort().build();
+		return new LocalRedisServer(anExecution().withConfiguration(configuration).build(), ConnectionProperties.DEFAULT,
+				lifecyclePolicy);
+	}
+}